@@ -0,0 +1,3 @@
+#!/bin/sh
+# Lets the db-cinema-java-replica service stream WAL from this instance (runs on first init only)
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
@@ -0,0 +1,53 @@
+package com.github.k1mb1.cinema_java_spring.benchmarks;
+
+import com.github.k1mb1.cinema_java_spring.entities.Country;
+import com.github.k1mb1.cinema_java_spring.entities.Genre;
+import com.github.k1mb1.cinema_java_spring.entities.Movie;
+import lombok.experimental.UtilityClass;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Deterministic fixtures shaped like production rows: a few genres and countries per movie.
+ */
+@UtilityClass
+class BenchmarkData {
+
+    static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    static Movie movie(int id) {
+        return Movie.builder()
+                .id(id)
+                .title("Movie " + id)
+                .description("Description of movie " + id + " long enough to look like a real synopsis.")
+                .year(2000 + id % 25)
+                .releaseDate(LocalDate.of(2000 + id % 25, 1 + id % 12, 1 + id % 28))
+                .worldGross(1_000_000L * id)
+                .budget(500_000L * id)
+                .ageRating("16+")
+                .durationMinutes(90 + id % 60)
+                .genres(Set.of(genre(1), genre(2 + id % 5), genre(8 + id % 3)))
+                .countries(Set.of(country(1), country(2 + id % 7)))
+                .createAt(NOW)
+                .updateAt(NOW)
+                .build();
+    }
+
+    static List<Movie> movies(int size) {
+        return IntStream.rangeClosed(1, size)
+                .mapToObj(BenchmarkData::movie)
+                .toList();
+    }
+
+    static Genre genre(int id) {
+        return Genre.builder().id(id).name("Genre " + id).createAt(NOW).updateAt(NOW).build();
+    }
+
+    static Country country(int id) {
+        return Country.builder().id(id).name("Country " + id).createAt(NOW).updateAt(NOW).build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.k1mb1.cinema_java_spring.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.mappers.CountryMapperImpl;
+import com.github.k1mb1.cinema_java_spring.mappers.GenreMapperImpl;
+import com.github.k1mb1.cinema_java_spring.mappers.MovieMapper;
+import com.github.k1mb1.cinema_java_spring.mappers.MovieMapperImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson writing of {@link MovieResponseDto} list payloads, configured the way Spring Boot configures
+ * the HTTP message converter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    ObjectWriter writer;
+    List<MovieResponseDto> payload;
+
+    @Setup
+    public void setUp() {
+        writer = Jackson2ObjectMapperBuilder.json()
+                .build()
+                .writerFor(new TypeReference<List<MovieResponseDto>>() {
+                });
+
+        try (var context = new AnnotationConfigApplicationContext(
+                MovieMapperImpl.class,
+                GenreMapperImpl.class,
+                CountryMapperImpl.class
+        )) {
+            payload = BenchmarkData.movies(size).stream()
+                    .map(context.getBean(MovieMapper.class)::toDto)
+                    .toList();
+        }
+    }
+
+    /**
+     * Serialization alone, without buffering the result.
+     */
+    @Benchmark
+    public void writeToStream() throws IOException {
+        writer.writeValue(OutputStream.nullOutputStream(), payload);
+    }
+
+    /**
+     * Serialization into a byte array, as a buffered response body would.
+     */
+    @Benchmark
+    public byte[] writeToBytes() throws IOException {
+        return writer.writeValueAsBytes(payload);
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.k1mb1.cinema_java_spring.benchmarks;
+
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieRequestDto;
+import com.github.k1mb1.cinema_java_spring.entities.Movie;
+import com.github.k1mb1.cinema_java_spring.entities.WatchedMovie;
+import com.github.k1mb1.cinema_java_spring.mappers.*;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the MapStruct mappers on the request/response hot path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    AnnotationConfigApplicationContext context;
+    MovieMapper movieMapper;
+    WatchedMovieMapper watchedMovieMapper;
+
+    Movie movie;
+    WatchedMovieRequestDto watchedMovieRequestDto;
+
+    @Setup
+    public void setUp() {
+        // The generated mappers use field injection, so let Spring wire them
+        context = new AnnotationConfigApplicationContext(
+                MovieMapperImpl.class,
+                GenreMapperImpl.class,
+                CountryMapperImpl.class,
+                WatchedMovieMapperImpl.class
+        );
+        movieMapper = context.getBean(MovieMapper.class);
+        watchedMovieMapper = context.getBean(WatchedMovieMapper.class);
+
+        movie = BenchmarkData.movie(42);
+        watchedMovieRequestDto = new WatchedMovieRequestDto(7, 42);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public MovieResponseDto movieToDto() {
+        return movieMapper.toDto(movie);
+    }
+
+    @Benchmark
+    public WatchedMovie watchedMovieToEntity() {
+        return watchedMovieMapper.toEntity(watchedMovieRequestDto);
+    }
+}
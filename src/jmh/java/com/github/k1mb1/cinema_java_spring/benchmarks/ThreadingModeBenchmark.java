@@ -0,0 +1,126 @@
+package com.github.k1mb1.cinema_java_spring.benchmarks;
+
+import com.github.k1mb1.cinema_java_spring.CinemaJavaSpringApplication;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.user.UserRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieRequestDto;
+import com.github.k1mb1.cinema_java_spring.services.MovieService;
+import com.github.k1mb1.cinema_java_spring.services.UserService;
+import com.github.k1mb1.cinema_java_spring.services.WatchedMovieService;
+import lombok.val;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end HTTP latency of the movie and watched-movie endpoints with Tomcat on platform threads
+ * versus virtual threads, at more concurrent clients than Tomcat has platform worker threads.
+ * <p>
+ * Starts the application against the database configured through the usual {@code POSTGRES_*}
+ * variables, seeds its own rows and deletes them afterwards. Sample-time mode reports p99 next to
+ * the mean; throughput is the inverse of the mean times the thread count.
+ * Run: {@code ./mvnw -Pjmh test-compile exec:exec -Djmh.args="ThreadingModeBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class ThreadingModeBenchmark {
+
+    static final int MOVIES = 200;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    ConfigurableApplicationContext context;
+    HttpClient client;
+    String baseUrl;
+    List<Integer> movieIds;
+    List<Integer> watchedMovieIds;
+    Integer userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CinemaJavaSpringApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "logging.level.root=WARN"
+                )
+                .run();
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        val movieService = context.getBean(MovieService.class);
+        val watchedMovieService = context.getBean(WatchedMovieService.class);
+        userId = context.getBean(UserService.class)
+                .createUser(new UserRequestDto().setUsername("benchmark-" + System.nanoTime()))
+                .getId();
+        movieIds = new ArrayList<>(MOVIES);
+        watchedMovieIds = new ArrayList<>(MOVIES);
+        for (int i = 0; i < MOVIES; i++) {
+            val movieId = movieService.createMovie(
+                    new MovieRequestDto().setTitle("Benchmark movie " + i).setReleaseDate(LocalDate.of(2020, 1, 1))
+            ).getId();
+            movieIds.add(movieId);
+            watchedMovieIds.add(watchedMovieService.markMovieAsWatched(new WatchedMovieRequestDto(userId, movieId)).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        val movieService = context.getBean(MovieService.class);
+        context.getBean(UserService.class).deleteUser(userId);
+        movieIds.forEach(movieService::deleteMovie);
+        context.close();
+    }
+
+    @Benchmark
+    public int getMovieById() throws IOException, InterruptedException {
+        return get("/api/movies/" + pick(movieIds));
+    }
+
+    @Benchmark
+    public int getMoviesPage() throws IOException, InterruptedException {
+        return get("/api/movies?limit=50");
+    }
+
+    @Benchmark
+    public int getWatchedMovieById() throws IOException, InterruptedException {
+        return get("/api/watched-movies/" + pick(watchedMovieIds));
+    }
+
+    @Benchmark
+    public int getWatchedMoviesPage() throws IOException, InterruptedException {
+        return get("/api/watched-movies?limit=50");
+    }
+
+    int get(String path) throws IOException, InterruptedException {
+        val response = client.send(
+                HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(),
+                HttpResponse.BodyHandlers.discarding()
+        );
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " returned " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    static Integer pick(List<Integer> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+}
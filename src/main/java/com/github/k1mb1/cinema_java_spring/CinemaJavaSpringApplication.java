@@ -2,8 +2,10 @@ package com.github.k1mb1.cinema_java_spring;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CinemaJavaSpringApplication {
     public static void main(String[] args) {
         SpringApplication.run(CinemaJavaSpringApplication.class, args);
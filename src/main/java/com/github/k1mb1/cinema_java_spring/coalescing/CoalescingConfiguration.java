@@ -0,0 +1,50 @@
+package com.github.k1mb1.cinema_java_spring.coalescing;
+
+import com.github.k1mb1.cinema_java_spring.conditional.ResourceVersion;
+import com.github.k1mb1.cinema_java_spring.dtos.user.UserResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieResponseDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.val;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Coalesces concurrent by-id reads of the same version of a row, after the cheap version lookup found the
+ * client's copy stale. Genres and countries are served from memory and have nothing to coalesce.
+ */
+@Configuration(proxyBeanMethods = false)
+public class CoalescingConfiguration {
+
+    @Bean
+    SingleFlight<ResourceVersion, byte[]> movieReads(
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        return new SingleFlight<>("movie", readTransaction(transactionManager), meterRegistry);
+    }
+
+    @Bean
+    SingleFlight<ResourceVersion, UserResponseDto> userReads(
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        return new SingleFlight<>("user", readTransaction(transactionManager), meterRegistry);
+    }
+
+    @Bean
+    SingleFlight<ResourceVersion, WatchedMovieResponseDto> watchedMovieReads(
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        return new SingleFlight<>("watched-movie", readTransaction(transactionManager), meterRegistry);
+    }
+
+    static TransactionTemplate readTransaction(PlatformTransactionManager transactionManager) {
+        // Read-only, so the load is routed to a replica like any @Transactional(readOnly = true) read
+        val transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction;
+    }
+}
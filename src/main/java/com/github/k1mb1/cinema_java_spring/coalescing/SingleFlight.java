@@ -0,0 +1,112 @@
+package com.github.k1mb1.cinema_java_spring.coalescing;
+
+import com.github.k1mb1.cinema_java_spring.datasource.MaxStaleness;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Runs one load per key at a time: callers asking for a key that is already being loaded wait for that load
+ * and share its result, or its exception, instead of starting their own.
+ * <p>
+ * The load runs in a transaction of its own, so waiting callers hold neither a transaction nor a connection.
+ * Nothing is kept once it completes; a caller gets at worst the result of a load that was running when it
+ * arrived. Keys are combined with the caller's {@link MaxStaleness}, so a request that must read from the
+ * primary never shares a result read from a replica. Callers already in a transaction load on their own,
+ * as they may see their uncommitted writes.
+ * <p>
+ * Calls are counted as {@code cinema.coalescing.requests}, tagged with {@code result} {@code leader} for those
+ * that ran the load and {@code shared} for those that waited for it.
+ *
+ * @param <K> key type, with value equality
+ * @param <V> result type; shared between threads, so it must not be modified
+ */
+@FieldDefaults(makeFinal = true)
+public class SingleFlight<K, V> {
+
+    TransactionOperations transaction;
+    ConcurrentMap<Call<K>, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    Counter leaders;
+    Counter followers;
+
+    public SingleFlight(
+            @NonNull String name,
+            @NonNull TransactionOperations transaction,
+            @NonNull MeterRegistry meterRegistry
+    ) {
+        this.transaction = transaction;
+        this.leaders = counter(name, "leader", meterRegistry);
+        this.followers = counter(name, "shared", meterRegistry);
+    }
+
+    public V load(@NonNull K key, @NonNull Supplier<V> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transaction.execute(status -> loader.get());
+        }
+        val call = new Call<>(key, MaxStaleness.current());
+        val flight = new CompletableFuture<V>();
+        val running = inFlight.putIfAbsent(call, flight);
+        if (running != null) {
+            followers.increment();
+            return await(running);
+        }
+
+        leaders.increment();
+        final V value;
+        try {
+            value = transaction.execute(status -> loader.get());
+        } catch (RuntimeException | Error e) {
+            // Removed first: callers arriving from now on start a new load rather than get this failure
+            inFlight.remove(call, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(call, flight);
+        flight.complete(value);
+        return value;
+    }
+
+    /**
+     * @return keys being loaded right now
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            // The leader's exception as is, e.g. a NotFoundException still becomes a 404
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    static Counter counter(String name, String result, MeterRegistry meterRegistry) {
+        return Counter.builder("cinema.coalescing.requests")
+                .description("Reads that ran a load or shared one already in flight for the same key")
+                .tag("name", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    record Call<K>(K key, Duration maxStaleness) {
+    }
+}
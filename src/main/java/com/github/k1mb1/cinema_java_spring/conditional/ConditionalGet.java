@@ -0,0 +1,130 @@
+package com.github.k1mb1.cinema_java_spring.conditional;
+
+import com.github.k1mb1.cinema_java_spring.errors.ErrorMessages;
+import com.github.k1mb1.cinema_java_spring.errors.PreconditionFailedException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.function.Predicate;
+
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
+
+/**
+ * Conditional GET support: services compare the cheap {@link ResourceVersion} of a resource with the
+ * client's {@code If-None-Match} / {@code If-Modified-Since} before loading it, and controllers turn
+ * the {@link Versioned} result into a 200 or an empty 304. A failed {@code If-Match} /
+ * {@code If-Unmodified-Since} is answered with 412.
+ */
+@UtilityClass
+public class ConditionalGet {
+
+    /**
+     * Responses may be stored, but must be revalidated before every reuse.
+     */
+    public static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    /**
+     * Whether the client's {@code If-None-Match} / {@code If-Modified-Since} match the version.
+     * <p>
+     * {@code If-Match} and {@code If-Unmodified-Since} are evaluated first, as RFC 9110 orders them:
+     * {@code checkNotModified} skips {@code If-Match} on GET and reports a failed {@code If-Unmodified-Since}
+     * as a match, so a failed precondition would be served as 304.
+     *
+     * @throws PreconditionFailedException from the predicate if a precondition fails
+     */
+    public static Predicate<ResourceVersion> clientHas(@NonNull HttpServletRequest request) {
+        val validators = new CacheValidatorsOnly(request);
+        return version -> {
+            if (!preconditionsHold(request, version)) {
+                throw new PreconditionFailedException(String.format(ErrorMessages.PRECONDITION_FAILED, version.etag()));
+            }
+            // Without the response, checkNotModified only evaluates the headers and writes nothing
+            return new ServletWebRequest(validators).checkNotModified(version.etag(), version.lastModifiedMillis());
+        };
+    }
+
+    public static <T> ResponseEntity<T> respond(@NonNull Versioned<T> versioned) {
+        return respond(versioned, null);
+    }
+
+    /**
+     * @param contentType set for bodies that are already serialized, e.g. {@code byte[]}
+     */
+    public static <T> ResponseEntity<T> respond(@NonNull Versioned<T> versioned, MediaType contentType) {
+        val version = versioned.version();
+        val response = ResponseEntity.status(versioned.isNotModified() ? NOT_MODIFIED : OK)
+                .eTag(version.etag())
+                .cacheControl(CACHE_CONTROL);
+        if (contentType != null && !versioned.isNotModified()) {
+            response.contentType(contentType);
+        }
+        if (version.lastModified() != null) {
+            response.lastModified(version.lastModified());
+        }
+        return response.body(versioned.body());
+    }
+
+    /**
+     * {@code If-Match} with strong comparison, or else {@code If-Unmodified-Since}; an invalid date is ignored.
+     */
+    static boolean preconditionsHold(HttpServletRequest request, ResourceVersion version) {
+        val ifMatch = Collections.list(request.getHeaders(HttpHeaders.IF_MATCH));
+        if (!ifMatch.isEmpty()) {
+            val current = ETag.create(version.etag());
+            return ifMatch.stream()
+                    .flatMap(header -> ETag.parse(header).stream())
+                    .anyMatch(tag -> tag.isWildcard() || tag.compare(current, true));
+        }
+        long ifUnmodifiedSince;
+        try {
+            ifUnmodifiedSince = request.getDateHeader(HttpHeaders.IF_UNMODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+        // HTTP dates have whole seconds
+        return ifUnmodifiedSince == -1 || version.lastModified() == null
+                || version.lastModifiedMillis() / 1000 * 1000 <= ifUnmodifiedSince;
+    }
+
+    /**
+     * The request without its {@code If-Match} and {@code If-Unmodified-Since} headers, which
+     * {@link #preconditionsHold} has already evaluated.
+     */
+    static class CacheValidatorsOnly extends HttpServletRequestWrapper {
+
+        CacheValidatorsOnly(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return isPrecondition(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isPrecondition(name) ? Collections.emptyEnumeration() : super.getHeaders(name);
+        }
+
+        @Override
+        public long getDateHeader(String name) {
+            return isPrecondition(name) ? -1 : super.getDateHeader(name);
+        }
+
+        static boolean isPrecondition(String name) {
+            return HttpHeaders.IF_MATCH.equalsIgnoreCase(name) || HttpHeaders.IF_UNMODIFIED_SINCE.equalsIgnoreCase(name);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.k1mb1.cinema_java_spring.conditional;
+
+import com.github.k1mb1.cinema_java_spring.repositories.EntityVersion;
+import lombok.NonNull;
+import lombok.val;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validators of one representation: a strong ETag and, where known, when it last changed.
+ *
+ * @param etag         quoted entity tag, changes whenever the response body would
+ * @param lastModified newest {@code updated_at} the body depends on, {@code null} if not tracked
+ */
+public record ResourceVersion(@NonNull String etag, Instant lastModified) {
+
+    /**
+     * @param updatedAt {@code updated_at} of the entity
+     * @param parts     everything else the body depends on, e.g. the type, id and referenced snapshots
+     */
+    public static ResourceVersion of(LocalDateTime updatedAt, Object... parts) {
+        return new ResourceVersion(
+                tag(Stream.concat(Arrays.stream(parts), Stream.of(updatedAt))),
+                updatedAt != null ? toInstant(updatedAt) : null
+        );
+    }
+
+    /**
+     * Version of a list response, from the id and {@code updated_at} of every row it is built from.
+     * A row added, changed or removed within the page changes the tag.
+     */
+    public static ResourceVersion ofRows(@NonNull List<EntityVersion> rows, Object... parts) {
+        val newest = rows.stream()
+                .map(EntityVersion::updateAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        return new ResourceVersion(
+                tag(Stream.concat(Arrays.stream(parts), rows.stream().map(row -> row.id() + "@" + row.updateAt()))),
+                newest != null ? toInstant(newest) : null
+        );
+    }
+
+    public long lastModifiedMillis() {
+        return lastModified != null ? lastModified.toEpochMilli() : -1;
+    }
+
+    static String tag(Stream<?> parts) {
+        val joined = parts.map(String::valueOf).collect(Collectors.joining("|"));
+        return '"' + DigestUtils.md5DigestAsHex(joined.getBytes(StandardCharsets.UTF_8)) + '"';
+    }
+
+    static Instant toInstant(LocalDateTime updatedAt) {
+        // Hibernate maps LocalDateTime to timestamptz in the JVM time zone
+        return updatedAt.atZone(ZoneId.systemDefault()).toInstant();
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.k1mb1.cinema_java_spring.conditional;
+
+import lombok.NonNull;
+
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A response body with its {@link ResourceVersion}; the body is {@code null} when the client's copy is current.
+ */
+public record Versioned<T>(@NonNull ResourceVersion version, T body) {
+
+    /**
+     * Builds the body only if the client does not already hold this version.
+     */
+    public static <T> Versioned<T> resolve(
+            @NonNull ResourceVersion version,
+            @NonNull Predicate<ResourceVersion> clientHas,
+            @NonNull Supplier<T> body
+    ) {
+        return clientHas.test(version) ? new Versioned<>(version, null) : new Versioned<>(version, body.get());
+    }
+
+    public boolean isNotModified() {
+        return body == null;
+    }
+}
@@ -1,16 +1,24 @@
 package com.github.k1mb1.cinema_java_spring.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.conditional.ConditionalGet;
 import com.github.k1mb1.cinema_java_spring.dtos.country.CountryRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.country.CountryResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.services.CountryService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.Set;
 
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
 import static org.springframework.http.HttpStatus.*;
 
 @RestController
@@ -27,13 +35,30 @@ public class CountryController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CountryResponseDto> getCountryById(@NonNull @PathVariable Integer id) {
-        return ResponseEntity.status(OK).body(countryService.getCountryById(id));
+    public ResponseEntity<CountryResponseDto> getCountryById(
+            @NonNull @PathVariable Integer id,
+            HttpServletRequest request
+    ) {
+        return ConditionalGet.respond(countryService.getCountryById(id, ConditionalGet.clientHas(request)));
+    }
+
+    /**
+     * The default first page is served as pre-encoded JSON straight from the in-memory snapshot.
+     */
+    @GetMapping(params = {"!after", "!limit"})
+    public ResponseEntity<byte[]> getAllCountriesFirstPage(
+            @RequestHeader(value = ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return countryService.getAllCountriesFirstPage().toResponse(acceptEncoding);
     }
 
     @GetMapping
-    public ResponseEntity<List<CountryResponseDto>> getAllCountries() {
-        return ResponseEntity.status(OK).body(countryService.getAllCountries());
+    public ResponseEntity<CursorPageResponseDto<CountryResponseDto>> getAllCountries(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request
+    ) {
+        return ConditionalGet.respond(countryService.getAllCountries(after, limit, ConditionalGet.clientHas(request)));
     }
 
     @PutMapping("/{id}")
@@ -44,9 +69,28 @@ public class CountryController {
         return ResponseEntity.status(OK).body(countryService.updateCountry(id, countryRequestDto));
     }
 
+    /**
+     * Changes only the fields present in the JSON Merge Patch body; {@code null} clears a field.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<CountryResponseDto> patchCountry(
+            @NonNull @PathVariable Integer id,
+            @NonNull @RequestBody JsonNode patch
+    ) {
+        return ResponseEntity.status(OK).body(countryService.patchCountry(id, patch));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteCountry(@NonNull @PathVariable Integer id) {
         countryService.deleteCountry(id);
         return ResponseEntity.status(NO_CONTENT).build();
     }
+
+    /**
+     * Deletes all of {@code ids} (e.g. {@code ?ids=1,2,3}) in one statement; ids that do not exist are skipped.
+     */
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<BulkDeleteResponseDto> deleteCountries(@NonNull @RequestParam Set<Integer> ids) {
+        return ResponseEntity.status(OK).body(countryService.deleteCountries(ids));
+    }
 }
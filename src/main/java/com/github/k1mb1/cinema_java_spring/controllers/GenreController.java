@@ -1,17 +1,25 @@
 package com.github.k1mb1.cinema_java_spring.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.conditional.ConditionalGet;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
 import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.services.GenreService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.util.Set;
 
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.OK;
 
@@ -29,13 +37,30 @@ public class GenreController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<GenreResponseDto> getGenreById(@NonNull @PathVariable Integer id) {
-        return ResponseEntity.status(OK).body(genreService.getGenreById(id));
+    public ResponseEntity<GenreResponseDto> getGenreById(
+            @NonNull @PathVariable Integer id,
+            HttpServletRequest request
+    ) {
+        return ConditionalGet.respond(genreService.getGenreById(id, ConditionalGet.clientHas(request)));
+    }
+
+    /**
+     * The default first page is served as pre-encoded JSON straight from the in-memory snapshot.
+     */
+    @GetMapping(params = {"!after", "!limit"})
+    public ResponseEntity<byte[]> getAllGenresFirstPage(
+            @RequestHeader(value = ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        return genreService.getAllGenresFirstPage().toResponse(acceptEncoding);
     }
 
     @GetMapping
-    public ResponseEntity<List<GenreResponseDto>> getAllGenres() {
-        return ResponseEntity.status(OK).body(genreService.getAllGenres());
+    public ResponseEntity<CursorPageResponseDto<GenreResponseDto>> getAllGenres(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request
+    ) {
+        return ConditionalGet.respond(genreService.getAllGenres(after, limit, ConditionalGet.clientHas(request)));
     }
 
     @PutMapping("/{id}")
@@ -46,9 +71,28 @@ public class GenreController {
         return ResponseEntity.status(OK).body(genreService.updateGenre(id, genreRequestDto));
     }
 
+    /**
+     * Changes only the fields present in the JSON Merge Patch body; {@code null} clears a field.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<GenreResponseDto> patchGenre(
+            @NonNull @PathVariable Integer id,
+            @NonNull @RequestBody JsonNode patch
+    ) {
+        return ResponseEntity.status(OK).body(genreService.patchGenre(id, patch));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteGenre(@NonNull @PathVariable Integer id) {
         genreService.deleteGenre(id);
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
+
+    /**
+     * Deletes all of {@code ids} (e.g. {@code ?ids=1,2,3}) in one statement; ids that do not exist are skipped.
+     */
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<BulkDeleteResponseDto> deleteGenres(@NonNull @RequestParam Set<Integer> ids) {
+        return ResponseEntity.status(OK).body(genreService.deleteGenres(ids));
+    }
 }
@@ -1,15 +1,29 @@
 package com.github.k1mb1.cinema_java_spring.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.conditional.ConditionalGet;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieBulkResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieFilterDto;
 import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.SimilarMovieDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.TrendingMovieDto;
+import com.github.k1mb1.cinema_java_spring.dtos.multiget.MultiGetResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.metrics.StatementBudget;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.services.MovieService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.springframework.http.HttpStatus.*;
 
@@ -26,14 +40,75 @@ public class MovieController {
         return ResponseEntity.status(CREATED).body(movieService.createMovie(movieRequestDto));
     }
 
+    @PostMapping("/bulk")
+    @StatementBudget(MovieService.BULK_STATEMENT_BUDGET)
+    public ResponseEntity<MovieBulkResponseDto> createMovies(@NonNull @RequestBody List<MovieRequestDto> movieRequestDtos) {
+        return ResponseEntity.status(OK).body(movieService.createMovies(movieRequestDtos));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<MovieResponseDto> getMovieById(@NonNull @PathVariable Integer id) {
-        return ResponseEntity.status(OK).body(movieService.getMovieById(id));
+    public ResponseEntity<byte[]> getMovieById(@NonNull @PathVariable Integer id, HttpServletRequest request) {
+        return ConditionalGet.respond(
+                movieService.getMovieJsonById(id, ConditionalGet.clientHas(request)),
+                MediaType.APPLICATION_JSON
+        );
     }
 
+    /**
+     * Lists movies, optionally filtered, e.g. {@code ?genreIds=1,2&yearFrom=1990&maxDuration=120}.
+     */
     @GetMapping
-    public ResponseEntity<List<MovieResponseDto>> getAllMovies() {
-        return ResponseEntity.status(OK).body(movieService.getAllMovies());
+    public ResponseEntity<CursorPageResponseDto<MovieResponseDto>> getAllMovies(
+            @ModelAttribute MovieFilterDto filter,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request
+    ) {
+        return ConditionalGet.respond(movieService.getAllMovies(filter, after, limit, ConditionalGet.clientHas(request)));
+    }
+
+    /**
+     * Several movies by id (e.g. {@code ?ids=3,1,2}) in one call, in the order asked for; ids that do
+     * not exist are listed in {@code missing} instead of failing the call.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResponseDto<MovieResponseDto>> getMoviesByIds(@NonNull @RequestParam List<Integer> ids) {
+        return ResponseEntity.status(OK).body(movieService.getMoviesByIds(ids));
+    }
+
+    /**
+     * Full-text search over titles and descriptions, best matches first. {@code q} accepts web search
+     * syntax: quoted phrases, {@code or} and {@code -excluded} words.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<CursorPageResponseDto<MovieResponseDto>> searchMovies(
+            @RequestParam String q,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.status(OK).body(movieService.searchMovies(q, after, limit));
+    }
+
+    /**
+     * Most watched movies in the last {@code window}: {@code 1h}, {@code 24h} or {@code 7d}.
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingMovieDto>> getTrendingMovies(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.status(OK).body(movieService.getTrendingMovies(window, limit));
+    }
+
+    /**
+     * Movies most often watched by the same users, most similar first.
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarMovieDto>> getSimilarMovies(
+            @NonNull @PathVariable Integer id,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.status(OK).body(movieService.getSimilarMovies(id, limit));
     }
 
     @PutMapping("/{id}")
@@ -44,9 +119,28 @@ public class MovieController {
         return ResponseEntity.status(OK).body(movieService.updateMovie(id, movieRequestDto));
     }
 
+    /**
+     * Changes only the fields present in the JSON Merge Patch body; {@code null} clears a field.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<MovieResponseDto> patchMovie(
+            @NonNull @PathVariable Integer id,
+            @NonNull @RequestBody JsonNode patch
+    ) {
+        return ResponseEntity.status(OK).body(movieService.patchMovie(id, patch));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteMovie(@NonNull @PathVariable Integer id) {
         movieService.deleteMovie(id);
         return ResponseEntity.status(NO_CONTENT).build();
     }
+
+    /**
+     * Deletes all of {@code ids} (e.g. {@code ?ids=1,2,3}) in one statement; ids that do not exist are skipped.
+     */
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<BulkDeleteResponseDto> deleteMovies(@NonNull @RequestParam Set<Integer> ids) {
+        return ResponseEntity.status(OK).body(movieService.deleteMovies(ids));
+    }
 }
@@ -1,15 +1,29 @@
 package com.github.k1mb1.cinema_java_spring.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.conditional.ConditionalGet;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.multiget.MultiGetResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
 import com.github.k1mb1.cinema_java_spring.dtos.user.UserRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.user.UserResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchHistoryItemDto;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.services.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 import static org.springframework.http.HttpStatus.*;
 
@@ -27,13 +41,51 @@ public class UserController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<UserResponseDto> getUserById(@NonNull @PathVariable Integer id) {
-        return ResponseEntity.status(OK).body(userService.getUserById(id));
+    public ResponseEntity<UserResponseDto> getUserById(@NonNull @PathVariable Integer id, HttpServletRequest request) {
+        return ConditionalGet.respond(userService.getUserById(id, ConditionalGet.clientHas(request)));
     }
 
     @GetMapping
-    public ResponseEntity<List<UserResponseDto>> getAllUsers() {
-        return ResponseEntity.status(OK).body(userService.getAllUsers());
+    public ResponseEntity<CursorPageResponseDto<UserResponseDto>> getAllUsers(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request
+    ) {
+        return ConditionalGet.respond(userService.getAllUsers(after, limit, ConditionalGet.clientHas(request)));
+    }
+
+    /**
+     * Several users by id (e.g. {@code ?ids=3,1,2}) in one call, in the order asked for; ids that do
+     * not exist are listed in {@code missing} instead of failing the call.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<MultiGetResponseDto<UserResponseDto>> getUsersByIds(@NonNull @RequestParam List<Integer> ids) {
+        return ResponseEntity.status(OK).body(userService.getUsersByIds(ids));
+    }
+
+    @GetMapping("/{id}/watched-movies")
+    public ResponseEntity<CursorPageResponseDto<WatchHistoryItemDto>> getWatchHistory(
+            @NonNull @PathVariable Integer id,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit
+    ) {
+        return ResponseEntity.status(OK).body(userService.getWatchHistory(id, after, limit));
+    }
+
+    /**
+     * Streams the user's whole watch history as NDJSON, newest first, one {@code WatchedMovieResponseDto} per line.
+     */
+    @GetMapping("/{id}/watched-movies/export")
+    public void exportWatchedMovies(@NonNull @PathVariable Integer id, HttpServletResponse response) throws IOException {
+        // Resolve a missing user to a JSON 404 before the response switches to NDJSON
+        userService.assertUserExists(id);
+
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(
+                HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename("user-" + id + "-watched-movies.ndjson").build().toString()
+        );
+        userService.exportWatchedMovies(id, response.getOutputStream());
     }
 
     @PutMapping("/{id}")
@@ -44,9 +96,28 @@ public class UserController {
         return ResponseEntity.status(OK).body(userService.updateUser(id, userRequestDto));
     }
 
+    /**
+     * Changes only the fields present in the JSON Merge Patch body; {@code null} clears a field.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<UserResponseDto> patchUser(
+            @NonNull @PathVariable Integer id,
+            @NonNull @RequestBody JsonNode patch
+    ) {
+        return ResponseEntity.status(OK).body(userService.patchUser(id, patch));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@NonNull @PathVariable Integer id) {
         userService.deleteUser(id);
         return ResponseEntity.status(NO_CONTENT).build();
     }
+
+    /**
+     * Deletes all of {@code ids} (e.g. {@code ?ids=1,2,3}) in one statement; ids that do not exist are skipped.
+     */
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<BulkDeleteResponseDto> deleteUsers(@NonNull @RequestParam Set<Integer> ids) {
+        return ResponseEntity.status(OK).body(userService.deleteUsers(ids));
+    }
 }
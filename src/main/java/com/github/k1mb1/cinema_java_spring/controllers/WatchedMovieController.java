@@ -1,15 +1,24 @@
 package com.github.k1mb1.cinema_java_spring.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.conditional.ConditionalGet;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieBatchItemDto;
 import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.services.WatchedMovieService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.springframework.http.HttpStatus.*;
 
@@ -26,14 +35,36 @@ public class WatchedMovieController {
         return ResponseEntity.status(CREATED).body(watchedMovieService.markMovieAsWatched(watchedMovieRequestDto));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<WatchedMovieResponseDto>> markMoviesAsWatched(
+            @NonNull @RequestBody List<WatchedMovieBatchItemDto> items
+    ) {
+        return ResponseEntity.status(OK).body(watchedMovieService.markMoviesAsWatched(items));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<WatchedMovieResponseDto> getWatchedMovieById(@NonNull @PathVariable Integer id) {
-        return ResponseEntity.status(OK).body(watchedMovieService.getWatchedMovieById(id));
+    public ResponseEntity<WatchedMovieResponseDto> getWatchedMovieById(@NonNull @PathVariable Integer id, HttpServletRequest request) {
+        return ConditionalGet.respond(watchedMovieService.getWatchedMovieById(id, ConditionalGet.clientHas(request)));
     }
 
     @GetMapping
-    public ResponseEntity<List<WatchedMovieResponseDto>> getAllWatchedMovies() {
-        return ResponseEntity.status(OK).body(watchedMovieService.getAllWatchedMovies());
+    public ResponseEntity<CursorPageResponseDto<WatchedMovieResponseDto>> getAllWatchedMovies(
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit,
+            HttpServletRequest request
+    ) {
+        return ConditionalGet.respond(watchedMovieService.getAllWatchedMovies(after, limit, ConditionalGet.clientHas(request)));
+    }
+
+    /**
+     * Changes only the fields present in the JSON Merge Patch body; {@code null} clears a field.
+     */
+    @PatchMapping(value = "/{id}", consumes = {MergePatch.MEDIA_TYPE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<WatchedMovieResponseDto> patchWatchedMovie(
+            @NonNull @PathVariable Integer id,
+            @NonNull @RequestBody JsonNode patch
+    ) {
+        return ResponseEntity.status(OK).body(watchedMovieService.patchWatchedMovie(id, patch));
     }
 
     @DeleteMapping("/{id}")
@@ -41,4 +72,12 @@ public class WatchedMovieController {
         watchedMovieService.deleteWatchedMovie(id);
         return ResponseEntity.status(NO_CONTENT).build();
     }
+
+    /**
+     * Deletes all of {@code ids} (e.g. {@code ?ids=1,2,3}) in one statement; ids that do not exist are skipped.
+     */
+    @DeleteMapping(params = "ids")
+    public ResponseEntity<BulkDeleteResponseDto> deleteWatchedMovies(@NonNull @RequestParam Set<Integer> ids) {
+        return ResponseEntity.status(OK).body(watchedMovieService.deleteWatchedMovies(ids));
+    }
 }
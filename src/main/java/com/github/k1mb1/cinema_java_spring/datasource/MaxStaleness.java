@@ -0,0 +1,55 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.val;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.MAX_STALENESS_INVALID;
+
+/**
+ * How far behind the primary the current request may read, from its {@value #HEADER} header in seconds.
+ * {@code 0} reads from the primary, e.g. right after a write.
+ */
+public class MaxStaleness implements HandlerInterceptor {
+
+    public static final String HEADER = "X-Max-Staleness";
+
+    static final ThreadLocal<Duration> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return the staleness the current request accepts, {@code null} if it did not say
+     */
+    public static Duration current() {
+        return CURRENT.get();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        val header = request.getHeader(HEADER);
+        if (header != null) {
+            CURRENT.set(parse(header));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        CURRENT.remove();
+    }
+
+    static Duration parse(String header) {
+        try {
+            val seconds = Long.parseLong(header.trim());
+            if (seconds >= 0) {
+                return Duration.ofSeconds(seconds);
+            }
+        } catch (NumberFormatException ignored) {
+            // Reported below
+        }
+        throw new BadRequestException(MAX_STALENESS_INVALID.formatted(header));
+    }
+}
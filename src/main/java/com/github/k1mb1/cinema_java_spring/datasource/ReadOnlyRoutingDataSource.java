@@ -0,0 +1,31 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import lombok.NonNull;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends connections of {@code @Transactional(readOnly = true)} work to the replicas and everything
+ * else to the primary.
+ * <p>
+ * The physical connection is only fetched on first use, once the transaction has marked it read-only,
+ * so the choice is made per transaction and transactions that never run a statement take no connection.
+ */
+public class ReadOnlyRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    public ReadOnlyRoutingDataSource(@NonNull DataSource primary, @NonNull ReplicaSet replicaSet) {
+        super(primary);
+        setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replicaSet));
+    }
+
+    /**
+     * Closes the primary pool when the bean is destroyed; the replica pools belong to the {@link ReplicaSet}.
+     */
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas of the {@code spring.datasource} primary.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("cinema.datasource")
+public class ReplicaProperties {
+
+    List<Replica> replicas = new ArrayList<>();
+    /**
+     * Replicas further behind the primary are not read from; {@value MaxStaleness#HEADER} can only lower it.
+     */
+    Duration maxLag = Duration.ofSeconds(10);
+
+    @Getter
+    @Setter
+    public static class Replica {
+
+        String url;
+        /**
+         * Defaults to {@code spring.datasource.username}.
+         */
+        String username;
+        /**
+         * Defaults to {@code spring.datasource.password}.
+         */
+        String password;
+        int maximumPoolSize = 10;
+        /**
+         * How long a read waits for a replica connection before falling back to the primary.
+         */
+        Duration connectionTimeout = Duration.ofSeconds(2);
+    }
+}
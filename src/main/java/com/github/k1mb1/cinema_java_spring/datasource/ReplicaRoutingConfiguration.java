@@ -0,0 +1,110 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.val;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+
+/**
+ * Active once {@code cinema.datasource.replicas[0].url} is set: read-only transactions are served by
+ * the replicas that are at most {@code cinema.datasource.max-lag} behind, everything else by the primary.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("cinema.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class ReplicaRoutingConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(new MaxStaleness());
+    }
+
+    @Bean
+    ReplicaSet replicaSet(
+            ReplicaProperties properties,
+            DataSourceProperties primary,
+            MeterRegistry meterRegistry,
+            Environment environment
+    ) {
+        val replicas = new ArrayList<ReplicaSet.Replica>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            val name = "replica-" + i;
+            val pool = pool(name, properties.getReplicas().get(i), primary, meterRegistry);
+            replicas.add(new ReplicaSet.Replica(
+                    name,
+                    Threading.VIRTUAL.isActive(environment)
+                            ? new ConnectionLimitingDataSource(pool, pool.getMaximumPoolSize(), Duration.ofMillis(pool.getConnectionTimeout()))
+                            : pool
+            ));
+        }
+        return new ReplicaSet(replicas, properties.getMaxLag(), meterRegistry);
+    }
+
+    @Bean
+    static BeanPostProcessor readOnlyRoutingDataSourcePostProcessor(ObjectProvider<ReplicaSet> replicaSet) {
+        return new ReadOnlyRoutingDataSourcePostProcessor(replicaSet);
+    }
+
+    static HikariDataSource pool(
+            String name,
+            ReplicaProperties.Replica replica,
+            DataSourceProperties primary,
+            MeterRegistry meterRegistry
+    ) {
+        val config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(replica.getUrl());
+        config.setUsername(replica.getUsername() != null ? replica.getUsername() : primary.determineUsername());
+        config.setPassword(replica.getPassword() != null ? replica.getPassword() : primary.determinePassword());
+        config.setMaximumPoolSize(replica.getMaximumPoolSize());
+        config.setConnectionTimeout(replica.getConnectionTimeout().toMillis());
+        config.setReadOnly(true);
+        // A replica that is down at startup is skipped until the lag check reaches it
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Runs after the connection limit is applied to the primary pool and before the metering wrapper,
+     * so statements sent to replicas are metered too.
+     */
+    static class ReadOnlyRoutingDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        final ObjectProvider<ReplicaSet> replicaSet;
+
+        ReadOnlyRoutingDataSourcePostProcessor(ObjectProvider<ReplicaSet> replicaSet) {
+            this.replicaSet = replicaSet;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof ReadOnlyRoutingDataSource)) {
+                return new ReadOnlyRoutingDataSource(dataSource, replicaSet.getObject());
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE + 1;
+        }
+    }
+}
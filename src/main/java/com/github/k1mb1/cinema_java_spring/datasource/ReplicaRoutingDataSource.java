@@ -0,0 +1,49 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out connections of the next replica current enough for the request, see {@link ReplicaSet#pick},
+ * or of the primary when none is.
+ * <p>
+ * A replica that fails to hand out a connection is marked unavailable until its next successful lag
+ * check, and the request falls back to the primary instead of failing.
+ */
+@FieldDefaults(makeFinal = true)
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    DataSource primary;
+    ReplicaSet replicaSet;
+
+    public ReplicaRoutingDataSource(@NonNull DataSource primary, @NonNull ReplicaSet replicaSet) {
+        this.primary = primary;
+        this.replicaSet = replicaSet;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        val replica = replicaSet.pick(MaxStaleness.current());
+        if (replica.isEmpty()) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.get().getDataSource().getConnection();
+        } catch (SQLException e) {
+            replica.get().markUnavailable(e.getMessage());
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        // Replica credentials are configured per pool
+        return getConnection();
+    }
+}
@@ -0,0 +1,162 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The read replicas with their replication lag, measured on a schedule.
+ * <p>
+ * A replica that cannot be reached, is not streaming from the primary or reports no replay
+ * position counts as unavailable until the next successful check.
+ */
+@Slf4j
+@FieldDefaults(makeFinal = true)
+public class ReplicaSet implements AutoCloseable {
+
+    /**
+     * Lag in milliseconds, {@code null} while the replica is not streaming from the primary.
+     * <p>
+     * A replica that replayed everything it received is current, even if the last replayed
+     * transaction is old because the primary has been idle; but only while its WAL receiver streams
+     * and heard from the primary within {@code wal_receiver_timeout}, the silence after which
+     * PostgreSQL itself gives up on the connection. An idle primary still sends keepalives well
+     * within that time, while a disconnected receiver has replayed everything it received forever.
+     */
+    static final String LAG_SQL = """
+            select case
+                when not pg_is_in_recovery() then 0
+                when not exists (
+                    select 1
+                    from pg_stat_wal_receiver
+                    where status = 'streaming'
+                      and last_msg_receipt_time > now()
+                        - coalesce(nullif(current_setting('wal_receiver_timeout'), '0')::interval, interval '1 minute')
+                ) then null
+                when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                else (extract(epoch from now() - pg_last_xact_replay_timestamp()) * 1000)::bigint
+            end""";
+
+    @Getter
+    List<Replica> replicas;
+    Duration maxLag;
+    AtomicInteger next = new AtomicInteger();
+
+    public ReplicaSet(@NonNull List<Replica> replicas, @NonNull Duration maxLag, @NonNull MeterRegistry meterRegistry) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLag = maxLag;
+        for (val replica : this.replicas) {
+            Gauge.builder("cinema.datasource.replica.lag", replica, Replica::lagOrNaN)
+                    .description("Replication lag of the read replica, NaN while it is unavailable")
+                    .tag("replica", replica.getName())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Picks the next replica, round robin, among those at most {@code maxStaleness} (capped at the
+     * configured max lag) behind the primary.
+     *
+     * Lags are as old as the last check, so zero staleness always means the primary.
+     *
+     * @param maxStaleness staleness the caller accepts, {@code null} for the configured max lag
+     * @return empty when no replica is current enough, i.e. the primary has to be read
+     */
+    public Optional<Replica> pick(Duration maxStaleness) {
+        if (maxStaleness != null && maxStaleness.isZero()) {
+            return Optional.empty();
+        }
+        val limit = (maxStaleness == null ? maxLag : min(maxStaleness, maxLag)).toMillis();
+        val start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            val replica = replicas.get((start + i) % replicas.size());
+            if (replica.lagMillis <= limit) {
+                return Optional.of(replica);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Scheduled(fixedDelayString = "${cinema.datasource.lag-check-interval:PT5S}")
+    public void checkLag() {
+        replicas.forEach(Replica::checkLag);
+    }
+
+    /**
+     * Closes the replica pools when the bean is destroyed.
+     */
+    @Override
+    public void close() throws Exception {
+        for (val replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable pool) {
+                pool.close();
+            }
+        }
+    }
+
+    static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    @Getter
+    public static class Replica {
+
+        static final long UNAVAILABLE = Long.MAX_VALUE;
+
+        final String name;
+        final DataSource dataSource;
+        final JdbcTemplate jdbcTemplate;
+        volatile long lagMillis = UNAVAILABLE;
+
+        public Replica(@NonNull String name, @NonNull DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+        }
+
+        void checkLag() {
+            try {
+                record(jdbcTemplate.queryForObject(LAG_SQL, Long.class));
+            } catch (DataAccessException e) {
+                markUnavailable(e.getMessage());
+            }
+        }
+
+        void record(Long lag) {
+            if (lag == null) {
+                markUnavailable("not streaming from the primary");
+                return;
+            }
+            if (lagMillis == UNAVAILABLE) {
+                log.info("Replica {} is available, {}ms behind", name, lag);
+            }
+            lagMillis = Math.max(0, lag);
+        }
+
+        void markUnavailable(String reason) {
+            if (lagMillis != UNAVAILABLE) {
+                log.warn("Replica {} is unavailable, reading from the primary: {}", name, reason);
+            }
+            lagMillis = UNAVAILABLE;
+        }
+
+        double lagOrNaN() {
+            val lag = lagMillis;
+            return lag == UNAVAILABLE ? Double.NaN : lag;
+        }
+    }
+}
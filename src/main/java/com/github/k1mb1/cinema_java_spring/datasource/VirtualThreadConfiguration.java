@@ -0,0 +1,49 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+/**
+ * Active with {@code spring.threads.virtual.enabled=true}, where Spring Boot already runs Tomcat,
+ * {@code @Async} and {@code @Scheduled} work on virtual threads. Limits concurrent connection use
+ * to the Hikari pool size.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfiguration {
+
+    @Bean
+    static BeanPostProcessor connectionLimitingDataSourcePostProcessor() {
+        return new ConnectionLimitingDataSourcePostProcessor();
+    }
+
+    /**
+     * Runs first, while the bean is still the bare Hikari pool.
+     */
+    static class ConnectionLimitingDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof HikariDataSource hikari) {
+                return new ConnectionLimitingDataSource(
+                        hikari,
+                        hikari.getMaximumPoolSize(),
+                        Duration.ofMillis(hikari.getConnectionTimeout())
+                );
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.k1mb1.cinema_java_spring.dtos.delete;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ids that did not exist are not counted, so {@code deleted} may be lower than the number requested.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteResponseDto {
+
+    Integer deleted;
+}
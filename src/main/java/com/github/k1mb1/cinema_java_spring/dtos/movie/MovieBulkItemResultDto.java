@@ -0,0 +1,28 @@
+package com.github.k1mb1.cinema_java_spring.dtos.movie;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieBulkItemResultDto {
+
+    /**
+     * Position of the item in the request array.
+     */
+    Integer index;
+
+    /**
+     * Id of the created movie, {@code null} when the item was rejected.
+     */
+    Integer id;
+
+    /**
+     * Why the item was rejected, {@code null} when it was created.
+     */
+    String error;
+}
@@ -0,0 +1,22 @@
+package com.github.k1mb1.cinema_java_spring.dtos.movie;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieBulkResponseDto {
+
+    Integer created;
+    Integer failed;
+
+    @Builder.Default
+    List<MovieBulkItemResultDto> items = new ArrayList<>();
+}
@@ -0,0 +1,44 @@
+package com.github.k1mb1.cinema_java_spring.dtos.movie;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Optional criteria for listing movies; all given criteria must match. Bounds are inclusive.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MovieFilterDto {
+
+    /**
+     * Movies in at least one of these genres.
+     */
+    Set<Integer> genreIds;
+
+    /**
+     * Movies from at least one of these countries.
+     */
+    Set<Integer> countryIds;
+
+    Integer yearFrom;
+    Integer yearTo;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    LocalDate releasedFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    LocalDate releasedTo;
+
+    Set<String> ageRatings;
+
+    Integer minDuration;
+    Integer maxDuration;
+}
@@ -2,6 +2,7 @@ package com.github.k1mb1.cinema_java_spring.dtos.movie;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -12,12 +13,13 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class MovieRequestDto {
 
     @NotBlank(message = "Title cannot be blank")
+    @Size(max = 255, message = "Title must be at most 255 characters")
     String title;
 
     String description;
@@ -31,6 +33,7 @@ public class MovieRequestDto {
 
     Long budget;
 
+    @Size(max = 10, message = "Age rating must be at most 10 characters")
     String ageRating;
 
     @Positive(message = "Duration must be positive")
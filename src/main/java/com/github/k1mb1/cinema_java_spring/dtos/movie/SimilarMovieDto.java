@@ -0,0 +1,20 @@
+package com.github.k1mb1.cinema_java_spring.dtos.movie;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarMovieDto {
+
+    Integer movieId;
+
+    /**
+     * Cosine similarity of the two movies' audiences, in (0, 1].
+     */
+    Double score;
+}
@@ -0,0 +1,20 @@
+package com.github.k1mb1.cinema_java_spring.dtos.movie;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendingMovieDto {
+
+    Integer movieId;
+
+    /**
+     * Watches recorded within the requested window.
+     */
+    Long watches;
+}
@@ -0,0 +1,28 @@
+package com.github.k1mb1.cinema_java_spring.dtos.multiget;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetResponseDto<T> {
+
+    /**
+     * Found rows in the order their ids were requested, each id once.
+     */
+    @Builder.Default
+    List<T> items = new ArrayList<>();
+
+    /**
+     * Requested ids that do not exist, in request order.
+     */
+    @Builder.Default
+    List<Integer> missing = new ArrayList<>();
+}
@@ -0,0 +1,24 @@
+package com.github.k1mb1.cinema_java_spring.dtos.page;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponseDto<T> {
+
+    @Builder.Default
+    List<T> items = new ArrayList<>();
+
+    /**
+     * Opaque cursor to pass as {@code after} for the next page, {@code null} on the last page.
+     */
+    String nextCursor;
+}
@@ -0,0 +1,23 @@
+package com.github.k1mb1.cinema_java_spring.dtos.watchedmovie;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of a user's watch history, with just enough of the movie to list it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WatchHistoryItemDto {
+
+    Integer id;
+    Integer movieId;
+    String movieTitle;
+    LocalDateTime watchedAt;
+}
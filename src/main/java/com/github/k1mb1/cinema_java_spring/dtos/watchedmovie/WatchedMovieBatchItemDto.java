@@ -0,0 +1,27 @@
+package com.github.k1mb1.cinema_java_spring.dtos.watchedmovie;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WatchedMovieBatchItemDto {
+
+    @NotNull(message = "User ID cannot be null")
+    Integer userId;
+
+    @NotNull(message = "Movie ID cannot be null")
+    Integer movieId;
+
+    /**
+     * When the client saw the movie; the time of the request if omitted.
+     */
+    LocalDateTime watchedAt;
+}
@@ -0,0 +1,22 @@
+package com.github.k1mb1.cinema_java_spring.dtos.watchedmovie;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * The editable part of a watch: the (user, movie) pair identifies it, only when it happened can be corrected.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WatchedMoviePatchDto {
+
+    @NotNull(message = "Watched at cannot be null")
+    LocalDateTime watchedAt;
+}
@@ -2,7 +2,10 @@ package com.github.k1mb1.cinema_java_spring.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -16,8 +19,13 @@ import java.util.Set;
 @AllArgsConstructor
 @Builder
 @Table(name = "countries")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Country.CACHE_REGION)
 public class Country {
 
+    public static final String CACHE_REGION = "country";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     Integer id;
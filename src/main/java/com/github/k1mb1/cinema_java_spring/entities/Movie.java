@@ -2,7 +2,10 @@ package com.github.k1mb1.cinema_java_spring.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDate;
@@ -17,10 +20,23 @@ import java.util.Set;
 @AllArgsConstructor
 @Builder
 @Table(name = "movies")
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Movie.CACHE_REGION)
+@NamedEntityGraph(
+        name = Movie.GENRES_AND_COUNTRIES,
+        attributeNodes = {@NamedAttributeNode("genres"), @NamedAttributeNode("countries")}
+)
 public class Movie {
 
+    public static final String GENRES_AND_COUNTRIES = "Movie.genresAndCountries";
+    public static final String CACHE_REGION = "movie";
+    public static final String GENRES_CACHE_REGION = "movie-genres";
+    public static final String COUNTRIES_CACHE_REGION = "movie-countries";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "movies_id_seq")
+    @SequenceGenerator(name = "movies_id_seq", sequenceName = "movies_id_seq", allocationSize = 50)
     Integer id;
 
     String title;
@@ -44,6 +60,7 @@ public class Movie {
     Integer durationMinutes;
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Movie.GENRES_CACHE_REGION)
     @JoinTable(
             name = "movie_genres",
             joinColumns = @JoinColumn(name = "movie_id"),
@@ -53,6 +70,7 @@ public class Movie {
     Set<Genre> genres = new HashSet<>();
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Movie.COUNTRIES_CACHE_REGION)
     @JoinTable(
             name = "movie_countries",
             joinColumns = @JoinColumn(name = "movie_id"),
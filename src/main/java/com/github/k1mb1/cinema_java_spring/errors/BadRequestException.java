@@ -0,0 +1,7 @@
+package com.github.k1mb1.cinema_java_spring.errors;
+
+import lombok.experimental.StandardException;
+
+@StandardException
+public class BadRequestException extends RuntimeException {
+}
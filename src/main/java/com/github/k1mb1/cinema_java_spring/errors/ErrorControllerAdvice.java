@@ -10,6 +10,7 @@ import java.util.stream.Collectors;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
 
 @ControllerAdvice
 public class ErrorControllerAdvice {
@@ -20,6 +21,18 @@ public class ErrorControllerAdvice {
                 .body(Error.of(ex.getMessage(), NOT_FOUND));
     }
 
+    @ExceptionHandler(BadRequestException.class)
+    public ResponseEntity<Error> handleBadRequestException(BadRequestException ex) {
+        return ResponseEntity.status(BAD_REQUEST)
+                .body(Error.of(ex.getMessage(), BAD_REQUEST));
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<Error> handlePreconditionFailedException(PreconditionFailedException ex) {
+        return ResponseEntity.status(PRECONDITION_FAILED)
+                .body(Error.of(ex.getMessage(), PRECONDITION_FAILED));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Error> handleValidationException(MethodArgumentNotValidException ex) {
         val details = ex.getBindingResult()
@@ -4,4 +4,14 @@ public class ErrorMessages {
     public static final String GENRE_NOT_FOUND = "Genre not found with id: %s";
     public static final String COUNTRY_NOT_FOUND = "Country not found with id: %s";
     public static final String USER_NOT_FOUND = "User not found with id: %s";
-}
\ No newline at end of file
+    public static final String USERS_NOT_FOUND = "Users not found with ids: %s";
+    public static final String MOVIES_NOT_FOUND = "Movies not found with ids: %s";
+    public static final String BATCH_ITEM_INVALID = "Batch item %s must have userId and movieId";
+    public static final String BULK_TOO_LARGE = "Bulk request must contain at most %s items";
+    public static final String SEARCH_QUERY_BLANK = "Search query cannot be blank";
+    public static final String TRENDING_WINDOW_INVALID = "Unknown trending window: %s, expected one of %s";
+    public static final String INVALID_CURSOR = "Invalid pagination cursor: %s";
+    public static final String PATCH_INVALID = "Invalid merge patch: %s";
+    public static final String PRECONDITION_FAILED = "Precondition failed, the current version is %s";
+    public static final String MAX_STALENESS_INVALID = "Invalid X-Max-Staleness header: %s, expected a number of seconds";
+}
@@ -5,6 +5,7 @@ import com.github.k1mb1.cinema_java_spring.dtos.country.CountryResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.Country;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 import org.mapstruct.ReportingPolicy;
 
 @Mapper(
@@ -20,4 +21,15 @@ public interface CountryMapper {
     @Mapping(target = "updateAt", ignore = true)
     @Mapping(target = "movies", ignore = true)
     Country toEntity(CountryRequestDto countryRequestDto);
+
+    CountryRequestDto toRequestDto(Country country);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createAt", ignore = true)
+    @Mapping(target = "updateAt", ignore = true)
+    @Mapping(target = "movies", ignore = true)
+    void updateEntity(CountryRequestDto countryRequestDto, @MappingTarget Country country);
+
+    @Mapping(target = "movies", ignore = true)
+    Country toReference(CountryResponseDto countryResponseDto);
 }
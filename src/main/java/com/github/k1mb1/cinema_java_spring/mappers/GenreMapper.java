@@ -5,6 +5,7 @@ import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.Genre;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 
 import static org.mapstruct.MappingConstants.ComponentModel.SPRING;
 
@@ -18,4 +19,15 @@ public interface GenreMapper {
     @Mapping(target = "createAt", ignore = true)
     @Mapping(target = "updateAt", ignore = true)
     Genre toEntity(GenreRequestDto genreRequestDto);
+
+    GenreRequestDto toRequestDto(Genre genre);
+
+    @Mapping(target = "movies", ignore = true)
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createAt", ignore = true)
+    @Mapping(target = "updateAt", ignore = true)
+    void updateEntity(GenreRequestDto genreRequestDto, @MappingTarget Genre genre);
+
+    @Mapping(target = "movies", ignore = true)
+    Genre toReference(GenreResponseDto genreResponseDto);
 }
@@ -8,6 +8,7 @@ import com.github.k1mb1.cinema_java_spring.entities.Movie;
 import lombok.NonNull;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 
 import static org.mapstruct.MappingConstants.ComponentModel.SPRING;
 
@@ -21,6 +22,21 @@ public interface MovieMapper {
     @Mapping(target = "watchedMovies", ignore = true)
     Movie toEntity(MovieRequestDto movieRequestDto);
 
+    @Mapping(target = "genreIds", source = "genres")
+    @Mapping(target = "countryIds", source = "countries")
+    MovieRequestDto toRequestDto(Movie movie);
+
+    /**
+     * Copies the scalar fields only; genres and countries are synced by id by the caller.
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createAt", ignore = true)
+    @Mapping(target = "updateAt", ignore = true)
+    @Mapping(target = "genres", ignore = true)
+    @Mapping(target = "countries", ignore = true)
+    @Mapping(target = "watchedMovies", ignore = true)
+    void updateEntity(MovieRequestDto movieRequestDto, @MappingTarget Movie movie);
+
     default Genre mapIdToGenre(@NonNull Integer id) {
         return Genre.builder().id(id).build();
     }
@@ -28,4 +44,12 @@ public interface MovieMapper {
     default Country mapIdToCountry(@NonNull Integer id) {
         return Country.builder().id(id).build();
     }
+
+    default Integer mapGenreToId(@NonNull Genre genre) {
+        return genre.getId();
+    }
+
+    default Integer mapCountryToId(@NonNull Country country) {
+        return country.getId();
+    }
 }
@@ -5,6 +5,7 @@ import com.github.k1mb1.cinema_java_spring.dtos.user.UserResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.User;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 
 @Mapper(componentModel = "spring")
 public interface UserMapper {
@@ -16,4 +17,12 @@ public interface UserMapper {
     @Mapping(target = "updateAt", ignore = true)
     @Mapping(target = "watchedMovies", ignore = true)
     User toEntity(UserRequestDto userRequestDto);
+
+    UserRequestDto toRequestDto(User user);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "createAt", ignore = true)
+    @Mapping(target = "updateAt", ignore = true)
+    @Mapping(target = "watchedMovies", ignore = true)
+    void updateEntity(UserRequestDto userRequestDto, @MappingTarget User user);
 }
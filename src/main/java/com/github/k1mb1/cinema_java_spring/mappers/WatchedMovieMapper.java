@@ -1,5 +1,6 @@
 package com.github.k1mb1.cinema_java_spring.mappers;
 
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMoviePatchDto;
 import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.Movie;
@@ -8,8 +9,14 @@ import com.github.k1mb1.cinema_java_spring.entities.WatchedMovie;
 import lombok.NonNull;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
+import org.mapstruct.MappingTarget;
 import org.mapstruct.Named;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
 @Mapper(componentModel = "spring")
 public interface WatchedMovieMapper {
 
@@ -25,6 +32,15 @@ public interface WatchedMovieMapper {
     @Mapping(target = "watchedAt", ignore = true)
     WatchedMovie toEntity(WatchedMovieRequestDto watchedMovieRequestDto);
 
+    WatchedMoviePatchDto toPatchDto(WatchedMovie watchedMovie);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "user", ignore = true)
+    @Mapping(target = "movie", ignore = true)
+    @Mapping(target = "createAt", ignore = true)
+    @Mapping(target = "updateAt", ignore = true)
+    void updateEntity(WatchedMoviePatchDto watchedMoviePatchDto, @MappingTarget WatchedMovie watchedMovie);
+
     @Named("mapIdToUser")
     default User mapIdToUser(@NonNull Integer id) {
         return User.builder().id(id).build();
@@ -34,4 +50,22 @@ public interface WatchedMovieMapper {
     default Movie mapIdToMovie(@NonNull Integer id) {
         return Movie.builder().id(id).build();
     }
+
+    /**
+     * Maps a {@code watched_movies} row read with plain JDBC.
+     */
+    default WatchedMovieResponseDto fromRow(@NonNull ResultSet resultSet) throws SQLException {
+        return WatchedMovieResponseDto.builder()
+                .id(resultSet.getInt("id"))
+                .userId(resultSet.getInt("user_id"))
+                .movieId(resultSet.getInt("movie_id"))
+                .watchedAt(toLocalDateTime(resultSet.getTimestamp("watched_at")))
+                .createAt(toLocalDateTime(resultSet.getTimestamp("created_at")))
+                .updateAt(toLocalDateTime(resultSet.getTimestamp("updated_at")))
+                .build();
+    }
+
+    default LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
 }
@@ -0,0 +1,120 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import lombok.NonNull;
+import lombok.val;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Counts JDBC statement executions, their duration and the rows read from their result sets
+ * into the {@link PersistenceStats} of the current request.
+ * <p>
+ * Covers everything that goes through the pool: Hibernate, Spring Data and plain {@code JdbcTemplate}.
+ */
+public class MeteredDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch"
+    );
+
+    public MeteredDataSource(@NonNull DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return meter(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return meter(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    /**
+     * Closes the wrapped pool when the bean is destroyed.
+     */
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable pool) {
+            pool.close();
+        }
+    }
+
+    static Connection meter(Connection target) {
+        return proxy(ConnectionProxy.class, target, (proxy, method, args) -> {
+            if (method.getName().equals("getTargetConnection")) {
+                return target;
+            }
+            val result = invoke(target, method, args);
+            return result instanceof Statement statement
+                    ? meterStatement(statement, method.getReturnType())
+                    : result;
+        });
+    }
+
+    static Object meterStatement(Statement target, Class<?> type) {
+        return proxy(type, target, (proxy, method, args) -> {
+            if (!EXECUTE_METHODS.contains(method.getName())) {
+                val result = invoke(target, method, args);
+                return result instanceof ResultSet resultSet ? meterResultSet(resultSet) : result;
+            }
+            val start = System.nanoTime();
+            try {
+                val result = invoke(target, method, args);
+                return result instanceof ResultSet resultSet ? meterResultSet(resultSet) : result;
+            } finally {
+                val stats = PersistenceStats.current();
+                if (stats != null) {
+                    stats.statementExecuted(System.nanoTime() - start);
+                }
+            }
+        });
+    }
+
+    static ResultSet meterResultSet(ResultSet target) {
+        return proxy(ResultSet.class, target, (proxy, method, args) -> {
+            val result = invoke(target, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                val stats = PersistenceStats.current();
+                if (stats != null) {
+                    stats.rowFetched();
+                }
+            }
+            return result;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(
+                MeteredDataSource.class.getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> "Metered " + target;
+                    default -> handler.invoke(proxy, method, args);
+                }
+        );
+    }
+
+    static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.*;
+import org.springframework.stereotype.Component;
+
+/**
+ * Feeds Hibernate session activity into the {@link PersistenceStats} of the current request:
+ * entities hydrated from rows, lazily fetched collections, flushes and lookups answered by the
+ * persistence context without a query.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true)
+public class PersistenceEventListener implements
+        LoadEventListener,
+        PostLoadEventListener,
+        InitializeCollectionEventListener,
+        FlushEventListener,
+        AutoFlushEventListener {
+
+    EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    void register() {
+        val registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(EventListenerRegistry.class);
+        // Before the default listener, which would put the entity into the persistence context
+        registry.prependListeners(EventType.LOAD, this);
+        registry.appendListeners(EventType.POST_LOAD, this);
+        registry.appendListeners(EventType.INIT_COLLECTION, this);
+        registry.appendListeners(EventType.FLUSH, this);
+        registry.appendListeners(EventType.AUTO_FLUSH, this);
+    }
+
+    @Override
+    public void onLoad(LoadEvent event, LoadType loadType) {
+        val stats = PersistenceStats.current();
+        if (stats == null || event.getEntityId() == null) {
+            return;
+        }
+        val session = event.getSession();
+        val persister = session.getFactory().getMappingMetamodel().findEntityDescriptor(event.getEntityClassName());
+        if (persister != null && session.getPersistenceContextInternal()
+                .containsEntity(session.generateEntityKey(event.getEntityId(), persister))) {
+            stats.sessionCacheHit();
+        }
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        val stats = PersistenceStats.current();
+        if (stats != null) {
+            stats.entityLoaded(unqualify(event.getPersister().getEntityName()));
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) {
+        val stats = PersistenceStats.current();
+        if (stats != null) {
+            val owner = event.getAffectedOwnerEntityName();
+            val role = event.getCollection().getRole();
+            stats.collectionFetched(role.startsWith(owner) ? unqualify(owner) + role.substring(owner.length()) : role);
+        }
+    }
+
+    @Override
+    public void onFlush(FlushEvent event) {
+        val stats = PersistenceStats.current();
+        if (stats != null) {
+            stats.flushed();
+        }
+    }
+
+    @Override
+    public void onAutoFlush(AutoFlushEvent event) {
+        val stats = PersistenceStats.current();
+        if (stats != null && event.isFlushRequired()) {
+            stats.flushed();
+        }
+    }
+
+    static String unqualify(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+}
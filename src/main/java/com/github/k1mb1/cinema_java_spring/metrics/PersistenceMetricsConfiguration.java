@@ -0,0 +1,92 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.stat.HibernateQueryMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.data.DefaultRepositoryTagsProvider;
+import org.springframework.boot.actuate.metrics.data.RepositoryTagsProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Persistence metrics published through Actuator.
+ * <ul>
+ *     <li>{@code hibernate.*}: session factory wide statistics, registered by Boot, and per-query timers</li>
+ *     <li>{@code spring.data.repository.invocations}: per repository method timers, with an extra {@code endpoint} tag</li>
+ *     <li>{@code cinema.persistence.*}: per request totals by {@code endpoint}, see {@link PersistenceMetricsInterceptor}</li>
+ * </ul>
+ * Requests are held to a statement budget, see {@link StatementBudgetProperties}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(StatementBudgetProperties.class)
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true)
+public class PersistenceMetricsConfiguration implements WebMvcConfigurer {
+
+    static final String SESSION_FACTORY = "entityManagerFactory";
+
+    ObjectProvider<MeterRegistry> registry;
+    StatementBudgetProperties statementBudget;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(new PersistenceMetricsInterceptor(registry.getObject(), statementBudget));
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer statementBudgetCustomizer() {
+        return properties -> properties.put(
+                JdbcSettings.STATEMENT_INSPECTOR, new StatementBudgetInspector(statementBudget.isStrict())
+        );
+    }
+
+    @Bean
+    HibernateQueryMetrics hibernateQueryMetrics(EntityManagerFactory entityManagerFactory) {
+        return new HibernateQueryMetrics(entityManagerFactory.unwrap(SessionFactory.class), SESSION_FACTORY, Tags.empty());
+    }
+
+    @Bean
+    RepositoryTagsProvider repositoryTagsProvider() {
+        val defaults = new DefaultRepositoryTagsProvider();
+        return invocation -> Tags.of(defaults.repositoryTags(invocation))
+                .and(PersistenceMetricsInterceptor.ENDPOINT, PersistenceStats.currentEndpoint());
+    }
+
+    @Bean
+    static BeanPostProcessor meteredDataSourcePostProcessor() {
+        return new MeteredDataSourcePostProcessor();
+    }
+
+    /**
+     * Runs last, so it wraps whatever other post-processors made of the pool.
+     */
+    static class MeteredDataSourcePostProcessor implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            return bean instanceof DataSource dataSource && !(bean instanceof MeteredDataSource)
+                    ? new MeteredDataSource(dataSource)
+                    : bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.LOWEST_PRECEDENCE;
+        }
+    }
+}
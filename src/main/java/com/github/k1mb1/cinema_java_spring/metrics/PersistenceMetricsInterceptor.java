@@ -0,0 +1,74 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the {@link PersistenceStats} of each controller call, tagged with
+ * {@code endpoint=<Controller>#<method>}, and warns about calls that went over their
+ * {@link StatementBudgetProperties statement budget} or repeated a query N+1 style.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true)
+public class PersistenceMetricsInterceptor implements HandlerInterceptor {
+
+    static final String ENDPOINT = "endpoint";
+
+    MeterRegistry registry;
+    StatementBudgetProperties budget;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod method) {
+            val endpoint = method.getBeanType().getSimpleName() + "#" + method.getMethod().getName();
+            val statementBudget = budget.budgetFor(endpoint, method.getMethodAnnotation(StatementBudget.class));
+            request.setAttribute(PersistenceStats.REQUEST_ATTRIBUTE, PersistenceStats.start(endpoint, statementBudget));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        val stats = PersistenceStats.current();
+        PersistenceStats.finish();
+        if (stats == null) {
+            return;
+        }
+        val endpoint = stats.getEndpoint();
+
+        registry.summary("cinema.persistence.statements", ENDPOINT, endpoint).record(stats.getStatements());
+        registry.timer("cinema.persistence.statements.time", ENDPOINT, endpoint)
+                .record(stats.getStatementNanos(), TimeUnit.NANOSECONDS);
+        registry.summary("cinema.persistence.rows", ENDPOINT, endpoint).record(stats.getRows());
+        registry.counter("cinema.persistence.flushes", ENDPOINT, endpoint).increment(stats.getFlushes());
+        registry.counter("cinema.persistence.session.cache.hits", ENDPOINT, endpoint)
+                .increment(stats.getSessionCacheHits());
+        stats.getEntityLoads().forEach((entity, loads) ->
+                registry.counter("cinema.persistence.entity.loads", ENDPOINT, endpoint, "entity", entity).increment(loads)
+        );
+        stats.getCollectionFetches().forEach((collection, fetches) ->
+                registry.counter("cinema.persistence.collection.fetches", ENDPOINT, endpoint, "collection", collection)
+                        .increment(fetches)
+        );
+
+        if (stats.isOverBudget()) {
+            registry.counter("cinema.persistence.statement.budget.exceeded", ENDPOINT, endpoint).increment();
+            log.warn("{} prepared {} statements, over its budget of {}",
+                    endpoint, stats.getPreparedStatements(), stats.getStatementBudget());
+        }
+        stats.repeatedQueries(budget.getNPlusOneThreshold()).forEach((sql, times) -> {
+            registry.counter("cinema.persistence.n-plus-one.suspects", ENDPOINT, endpoint).increment();
+            log.warn("{} ran the same query {} times, N+1 suspect: {}", endpoint, times, sql);
+        });
+    }
+}
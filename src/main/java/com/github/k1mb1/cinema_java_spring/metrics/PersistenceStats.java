@@ -0,0 +1,125 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.val;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Database work done while handling one request, collected on the request thread.
+ * <p>
+ * {@link MeteredDataSource}, {@link StatementBudgetInspector} and {@link PersistenceEventListener} add to
+ * the instance bound to the current thread, if any; {@link PersistenceMetricsInterceptor} binds it, keeps it
+ * in the {@link #REQUEST_ATTRIBUTE} request attribute and publishes the totals.
+ */
+@Getter
+@RequiredArgsConstructor
+public class PersistenceStats {
+
+    public static final String REQUEST_ATTRIBUTE = PersistenceStats.class.getName();
+    static final String NO_ENDPOINT = "none";
+    static final ThreadLocal<PersistenceStats> CURRENT = new ThreadLocal<>();
+
+    final String endpoint;
+    final int statementBudget;
+    int statements;
+    long statementNanos;
+    long rows;
+    int flushes;
+    int sessionCacheHits;
+    int preparedStatements;
+    /**
+     * Times each statement text was prepared by Hibernate; parameters are bound separately, so
+     * the same query for different ids counts under one key.
+     */
+    final Map<String, Integer> preparedSql = new LinkedHashMap<>();
+    final Map<String, Integer> entityLoads = new HashMap<>();
+    final Map<String, Integer> collectionFetches = new HashMap<>();
+
+    /**
+     * @return stats of the request running on this thread, {@code null} outside of requests
+     */
+    public static PersistenceStats current() {
+        return CURRENT.get();
+    }
+
+    public static String currentEndpoint() {
+        val stats = CURRENT.get();
+        return stats != null ? stats.endpoint : NO_ENDPOINT;
+    }
+
+    static PersistenceStats start(@NonNull String endpoint, int statementBudget) {
+        val stats = new PersistenceStats(endpoint, statementBudget);
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    static void finish() {
+        CURRENT.remove();
+    }
+
+    void statementExecuted(long nanos) {
+        statements++;
+        statementNanos += nanos;
+    }
+
+    /**
+     * @return statements prepared by this request so far, this one included
+     */
+    int statementPrepared(String sql) {
+        preparedSql.merge(sql, 1, Integer::sum);
+        return ++preparedStatements;
+    }
+
+    public boolean isOverBudget() {
+        return preparedStatements > statementBudget;
+    }
+
+    /**
+     * Queries prepared at least {@code threshold} times, the signature of an N+1: one query per
+     * parent row instead of one for all of them. Writes are left out, a JDBC batch prepares its
+     * statement once per batch.
+     *
+     * @return times prepared, by statement text
+     */
+    public Map<String, Integer> repeatedQueries(int threshold) {
+        return preparedSql.entrySet().stream()
+                .filter(entry -> entry.getValue() >= threshold && isQuery(entry.getKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    /**
+     * Selects, but not sequence fetches: a pooled sequence is read once per allocation, e.g. once per
+     * batch of a bulk insert.
+     */
+    static boolean isQuery(String sql) {
+        val start = sql.stripLeading().toLowerCase(Locale.ROOT);
+        return (start.startsWith("select") || start.startsWith("with")) && !start.startsWith("select nextval(");
+    }
+
+    void rowFetched() {
+        rows++;
+    }
+
+    void flushed() {
+        flushes++;
+    }
+
+    void sessionCacheHit() {
+        sessionCacheHits++;
+    }
+
+    void entityLoaded(String entity) {
+        entityLoads.merge(entity, 1, Integer::sum);
+    }
+
+    void collectionFetched(String role) {
+        collectionFetches.merge(role, 1, Integer::sum);
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Statement budget of a controller method that legitimately needs more than
+ * {@code cinema.statement-budget.max-statements}, for budgets that follow from constants in the
+ * code. An entry in {@code cinema.statement-budget.endpoints} still takes precedence.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface StatementBudget {
+
+    int value();
+}
@@ -0,0 +1,14 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+/**
+ * Thrown in strict mode when a request prepares more statements than its endpoint's budget.
+ * <p>
+ * Not an {@link IllegalStateException}: Spring would translate that into a data access exception
+ * and hide what went wrong.
+ */
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Records every statement Hibernate prepares, native queries included, into the
+ * {@link PersistenceStats} of the current request.
+ * <p>
+ * In strict mode the statement that goes over the endpoint's budget is not run; the request fails
+ * with {@link StatementBudgetExceededException} instead. Otherwise {@link PersistenceMetricsInterceptor}
+ * reports the overrun once the request completes.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true)
+public class StatementBudgetInspector implements StatementInspector {
+
+    boolean strict;
+
+    @Override
+    public String inspect(String sql) {
+        val stats = PersistenceStats.current();
+        if (stats == null) {
+            return sql;
+        }
+        val prepared = stats.statementPrepared(sql);
+        if (strict && prepared > stats.getStatementBudget()) {
+            throw new StatementBudgetExceededException("%s prepared %d statements, over its budget of %d; last: %s"
+                    .formatted(stats.getEndpoint(), prepared, stats.getStatementBudget(), sql));
+        }
+        return sql;
+    }
+}
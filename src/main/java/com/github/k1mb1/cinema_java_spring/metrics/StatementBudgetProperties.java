@@ -0,0 +1,41 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * How many SQL statements a request may prepare, see {@link StatementBudgetInspector}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("cinema.statement-budget")
+public class StatementBudgetProperties {
+
+    /**
+     * Statements a request may prepare unless its endpoint is listed in {@link #endpoints}.
+     */
+    int maxStatements = 10;
+    /**
+     * Budgets of endpoints that legitimately need more (or fewer) statements, by {@code <Controller>#<method>};
+     * these override a {@link StatementBudget} on the method.
+     */
+    Map<String, Integer> endpoints = new LinkedHashMap<>();
+    /**
+     * A query prepared this many times with the same text, i.e. with only its parameters changing,
+     * is reported as an N+1 suspect.
+     */
+    int nPlusOneThreshold = 3;
+    /**
+     * Fail the request at the first statement over budget instead of logging it once it completes.
+     */
+    boolean strict;
+
+    int budgetFor(@NonNull String endpoint, StatementBudget declared) {
+        return endpoints.getOrDefault(endpoint, declared != null ? declared.value() : maxStatements);
+    }
+}
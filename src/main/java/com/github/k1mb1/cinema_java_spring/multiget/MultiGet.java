@@ -0,0 +1,61 @@
+package com.github.k1mb1.cinema_java_spring.multiget;
+
+import com.github.k1mb1.cinema_java_spring.dtos.multiget.MultiGetResponseDto;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.BULK_TOO_LARGE;
+
+/**
+ * Helpers for fetching several rows by id in one call.
+ * <p>
+ * At most {@value #MAX_IDS} distinct ids are accepted, so a call is answered by a single {@code IN}-list
+ * query however many ids it names.
+ */
+@UtilityClass
+public class MultiGet {
+
+    public static final int MAX_IDS = 100;
+
+    /**
+     * @param ids    requested ids; duplicates are answered once, at their first position
+     * @param loader fetches the rows with the given ids, in any order, skipping those that do not exist
+     * @throws BadRequestException if more than {@value #MAX_IDS} distinct ids are requested
+     */
+    public static <E, T> MultiGetResponseDto<T> load(
+            @NonNull List<Integer> ids,
+            @NonNull Function<Collection<Integer>, List<E>> loader,
+            @NonNull Function<E, Integer> idOf,
+            @NonNull Function<E, T> mapper
+    ) {
+        val requested = ids.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (requested.size() > MAX_IDS) {
+            throw new BadRequestException(BULK_TOO_LARGE.formatted(MAX_IDS));
+        }
+        val response = new MultiGetResponseDto<T>(new ArrayList<>(requested.size()), new ArrayList<>());
+        if (requested.isEmpty()) {
+            return response;
+        }
+
+        val found = loader.apply(requested).stream().collect(Collectors.toMap(idOf, Function.identity()));
+        for (val id : requested) {
+            val row = found.get(id);
+            if (row != null) {
+                response.getItems().add(mapper.apply(row));
+            } else {
+                response.getMissing().add(id);
+            }
+        }
+        return response;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.k1mb1.cinema_java_spring.offheap;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.function.Supplier;
+
+/**
+ * Serialized {@code GET /api/movies/{id}} bodies, keyed by movie id and ETag.
+ * <p>
+ * A hit skips loading the movie with its genres and countries, the mapping and the serialization;
+ * the body is copied out of off-heap memory as is.
+ */
+@Component
+@FieldDefaults(makeFinal = true)
+public class MovieJsonCache extends OffHeapJsonCache {
+
+    ObjectMapper objectMapper;
+
+    public MovieJsonCache(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${cinema.movie-json-cache.capacity:64MB}") DataSize capacity
+    ) {
+        super(Math.toIntExact(capacity.toBytes()));
+        this.objectMapper = objectMapper;
+        Gauge.builder("cinema.movie-json-cache.entries", this, OffHeapJsonCache::size)
+                .description("Movie bodies held in the off-heap cache")
+                .register(meterRegistry);
+        Gauge.builder("cinema.movie-json-cache.memory", this, OffHeapJsonCache::usedBytes)
+                .description("Off-heap memory taken by cached movie bodies")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("cinema.movie-json-cache.requests", this, OffHeapJsonCache::hits)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cinema.movie-json-cache.requests", this, OffHeapJsonCache::misses)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cinema.movie-json-cache.evictions", this, OffHeapJsonCache::evictions)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached body of this version of the movie, or {@code movie} serialized and cached.
+     */
+    public byte[] get(int id, @NonNull String version, @NonNull Supplier<MovieResponseDto> movie) {
+        return get(id, version).orElseGet(() -> {
+            val body = serialize(movie.get());
+            put(id, version, body);
+            return body;
+        });
+    }
+
+    byte[] serialize(MovieResponseDto movie) {
+        try {
+            return objectMapper.writeValueAsBytes(movie);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize movie " + movie.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.github.k1mb1.cinema_java_spring.offheap;
+
+import lombok.NonNull;
+import lombok.val;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serialized response bodies keyed by entity id, stored outside the Java heap.
+ * <p>
+ * Bodies live in one direct buffer allocated up front and written as a ring log: new entries are
+ * appended at the head and overwrite the oldest ones. An entry read since it was written gets a
+ * second chance and is copied to the head instead of being dropped (CLOCK eviction), so frequently
+ * read entries stay while one-off reads age out. Only a small slot per entry stays on the heap.
+ * <p>
+ * Each entry carries the version (ETag) it was built for and is only returned for that version,
+ * so a stale body is never served, even if an invalidation was missed.
+ */
+public class OffHeapJsonCache {
+
+    final ByteBuffer buffer;
+    final int capacity;
+    final int maxEntryBytes;
+    final Map<Integer, Slot> index = new HashMap<>();
+    // Live and dead slots in write order; the head of the log is the next to be overwritten
+    final ArrayDeque<Slot> log = new ArrayDeque<>();
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    // Logical write position; the buffer offset is head % capacity
+    long head;
+    long usedBytes;
+
+    /**
+     * @param capacity bytes of off-heap memory to reserve, counted against {@code -XX:MaxDirectMemorySize}
+     */
+    public OffHeapJsonCache(int capacity) {
+        this.capacity = capacity;
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+        // Larger bodies would evict too much of the cache at once
+        this.maxEntryBytes = capacity / 8;
+    }
+
+    public Optional<byte[]> get(int id, @NonNull String version) {
+        lock.readLock().lock();
+        try {
+            val slot = index.get(id);
+            if (slot == null || !slot.version.equals(version)) {
+                misses.increment();
+                return Optional.empty();
+            }
+            slot.referenced = true;
+            val body = new byte[slot.length];
+            // Absolute bulk get: no buffer position is shared between readers
+            buffer.get(offset(slot.position), body);
+            hits.increment();
+            return Optional.of(body);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores {@code body} as the entry for {@code id}, replacing any other version of it.
+     * Bodies larger than an eighth of the capacity are not stored.
+     */
+    public void put(int id, @NonNull String version, @NonNull byte[] body) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+            if (body.length <= maxEntryBytes) {
+                append(id, version, body);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidate(int id) {
+        lock.writeLock().lock();
+        try {
+            remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            log.clear();
+            usedBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes taken by live entries.
+     */
+    public long usedBytes() {
+        lock.readLock().lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    void append(int id, String version, byte[] body) {
+        var start = head;
+        if (offset(start) + body.length > capacity) {
+            // Entries never wrap around the end of the buffer; the rest of it is skipped
+            start += capacity - offset(start);
+        }
+        val end = start + body.length;
+        val rescued = evictBefore(end - capacity);
+
+        buffer.put(offset(start), body);
+        head = end;
+        val slot = new Slot(id, version, start, body.length);
+        index.put(id, slot);
+        log.addLast(slot);
+        usedBytes += body.length;
+
+        for (val entry : rescued) {
+            append(entry.id, entry.version, entry.body);
+        }
+    }
+
+    /**
+     * Drops the slots written before {@code position}, whose bytes are about to be overwritten.
+     * Referenced ones are copied out to be appended again.
+     */
+    List<Rescued> evictBefore(long position) {
+        val rescued = new ArrayList<Rescued>();
+        while (!log.isEmpty() && log.peekFirst().position < position) {
+            val slot = log.pollFirst();
+            if (index.get(slot.id) != slot) {
+                continue;
+            }
+            index.remove(slot.id);
+            usedBytes -= slot.length;
+            if (slot.referenced) {
+                val body = new byte[slot.length];
+                buffer.get(offset(slot.position), body);
+                rescued.add(new Rescued(slot.id, slot.version, body));
+            } else {
+                evictions.increment();
+            }
+        }
+        return rescued;
+    }
+
+    void remove(int id) {
+        // The bytes stay in the log until the head passes them
+        val slot = index.remove(id);
+        if (slot != null) {
+            usedBytes -= slot.length;
+        }
+    }
+
+    int offset(long position) {
+        return (int) (position % capacity);
+    }
+
+    static final class Slot {
+
+        final int id;
+        final String version;
+        final long position;
+        final int length;
+        volatile boolean referenced;
+
+        Slot(int id, String version, long position, int length) {
+            this.id = id;
+            this.version = version;
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    record Rescued(int id, String version, byte[] body) {
+    }
+}
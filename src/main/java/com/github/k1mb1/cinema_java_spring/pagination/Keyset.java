@@ -0,0 +1,160 @@
+package com.github.k1mb1.cinema_java_spring.pagination;
+
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
+import lombok.NonNull;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.INVALID_CURSOR;
+
+/**
+ * Helpers for keyset (cursor) pagination ordered by the entity id.
+ * <p>
+ * Cursors are opaque to clients: they encode the id of the last row of the previous page,
+ * so every page is a single index range scan regardless of how deep it is.
+ */
+@UtilityClass
+public class Keyset {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    static final String PREFIX = "id:";
+    static final String RANK_PREFIX = "rank:";
+    static final String TIME_PREFIX = "time:";
+
+    public static String encode(@NonNull Integer id) {
+        return encodeRaw(PREFIX + id);
+    }
+
+    /**
+     * Cursor for results ordered by a descending score, ties broken by ascending id.
+     */
+    public static String encode(float rank, @NonNull Integer id) {
+        return encodeRaw(RANK_PREFIX + rank + ":" + id);
+    }
+
+    /**
+     * Cursor for results ordered by a descending timestamp, ties broken by descending id.
+     */
+    public static String encode(@NonNull LocalDateTime time, @NonNull Integer id) {
+        return encodeRaw(TIME_PREFIX + time + ":" + id);
+    }
+
+    /**
+     * @return the id the next page starts after, {@code 0} when no cursor is given
+     */
+    public static int decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            val raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new BadRequestException(INVALID_CURSOR.formatted(cursor));
+            }
+            return Integer.parseInt(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(INVALID_CURSOR.formatted(cursor), e);
+        }
+    }
+
+    /**
+     * @return the position the next page starts after, before every row when no cursor is given
+     */
+    public static RankCursor decodeRanked(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return RankCursor.FIRST;
+        }
+        try {
+            val raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            val separator = raw.lastIndexOf(':');
+            if (!raw.startsWith(RANK_PREFIX) || separator < RANK_PREFIX.length()) {
+                throw new BadRequestException(INVALID_CURSOR.formatted(cursor));
+            }
+            return new RankCursor(
+                    Float.parseFloat(raw.substring(RANK_PREFIX.length(), separator)),
+                    Integer.parseInt(raw.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(INVALID_CURSOR.formatted(cursor), e);
+        }
+    }
+
+    /**
+     * @return the position the next page starts after, before every row when no cursor is given
+     */
+    public static TimeCursor decodeTimed(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return TimeCursor.FIRST;
+        }
+        try {
+            val raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            val separator = raw.lastIndexOf(':');
+            if (!raw.startsWith(TIME_PREFIX) || separator < TIME_PREFIX.length()) {
+                throw new BadRequestException(INVALID_CURSOR.formatted(cursor));
+            }
+            return new TimeCursor(
+                    LocalDateTime.parse(raw.substring(TIME_PREFIX.length(), separator)),
+                    Integer.parseInt(raw.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException(INVALID_CURSOR.formatted(cursor), e);
+        }
+    }
+
+    public static int limit(Integer requested) {
+        if (requested == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.clamp(requested, 1, MAX_LIMIT);
+    }
+
+    /**
+     * One extra row is fetched to find out whether another page exists without a count query.
+     */
+    public static Limit probe(int limit) {
+        return Limit.of(limit + 1);
+    }
+
+    public static <E, T> CursorPageResponseDto<T> page(
+            @NonNull List<E> rows,
+            int limit,
+            @NonNull Function<E, Integer> idExtractor,
+            @NonNull Function<E, T> mapper
+    ) {
+        return pageBy(rows, limit, row -> encode(idExtractor.apply(row)), mapper);
+    }
+
+    /**
+     * Same as {@link #page}, for rows whose cursor is more than their id.
+     */
+    public static <E, T> CursorPageResponseDto<T> pageBy(
+            @NonNull List<E> rows,
+            int limit,
+            @NonNull Function<E, String> cursorExtractor,
+            @NonNull Function<E, T> mapper
+    ) {
+        val hasMore = rows.size() > limit;
+        val pageRows = hasMore ? rows.subList(0, limit) : rows;
+        return CursorPageResponseDto.<T>builder()
+                .items(pageRows.stream().map(mapper).toList())
+                .nextCursor(hasMore ? cursorExtractor.apply(pageRows.getLast()) : null)
+                .build();
+    }
+
+    static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
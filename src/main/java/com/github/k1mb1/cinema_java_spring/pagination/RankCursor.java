@@ -0,0 +1,9 @@
+package com.github.k1mb1.cinema_java_spring.pagination;
+
+/**
+ * Position in a result ordered by {@code rank desc, id asc}.
+ */
+public record RankCursor(float rank, int id) {
+
+    public static final RankCursor FIRST = new RankCursor(Float.POSITIVE_INFINITY, 0);
+}
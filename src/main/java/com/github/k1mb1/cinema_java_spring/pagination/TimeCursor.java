@@ -0,0 +1,14 @@
+package com.github.k1mb1.cinema_java_spring.pagination;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position in a result ordered by {@code time desc, id desc}.
+ */
+public record TimeCursor(LocalDateTime time, int id) {
+
+    /**
+     * Sorts after every stored row; {@link LocalDateTime#MAX} is out of range for the database.
+     */
+    public static final TimeCursor FIRST = new TimeCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Integer.MAX_VALUE);
+}
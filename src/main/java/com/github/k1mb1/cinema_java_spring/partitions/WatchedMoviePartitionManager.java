@@ -0,0 +1,134 @@
+package com.github.k1mb1.cinema_java_spring.partitions;
+
+import lombok.experimental.FieldDefaults;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the monthly partitions of {@code watched_movies} (see migration 00015).
+ * <p>
+ * Months are calendar months in UTC. Partitions are created ahead of the current month on startup and
+ * on a schedule, so inserts never fall through to {@code watched_movies_default}. With a retention set,
+ * partitions of older months are detached: they stay in the database as plain tables, out of every
+ * query and index on {@code watched_movies}, to be archived or dropped separately.
+ */
+@Slf4j
+@Component
+@Transactional
+@FieldDefaults(makeFinal = true)
+public class WatchedMoviePartitionManager {
+
+    static final String PARTITION_PREFIX = "watched_movies_p";
+    static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    /**
+     * Serializes maintenance between application instances.
+     */
+    static final String LOCK_SQL = "select pg_advisory_xact_lock(hashtext('watched_movies_partitions'))";
+    static final String PARTITIONS_SQL = """
+            select child.relname
+            from pg_inherits
+            join pg_class child on child.oid = pg_inherits.inhrelid
+            where pg_inherits.inhparent = 'watched_movies'::regclass and child.relname like 'watched\\_movies\\_p%'
+            order by child.relname""";
+    static final String DEFAULT_PARTITION_HAS_ROWS_SQL = """
+            select exists (
+                select 1 from watched_movies_default where watched_at >= ?::timestamptz and watched_at < ?::timestamptz
+            )""";
+
+    JdbcTemplate jdbcTemplate;
+    int monthsAhead;
+    int retentionMonths;
+
+    public WatchedMoviePartitionManager(
+            JdbcTemplate jdbcTemplate,
+            @Value("${cinema.watched-movies.partitions.months-ahead:3}") int monthsAhead,
+            @Value("${cinema.watched-movies.partitions.retention-months:0}") int retentionMonths
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${cinema.watched-movies.partitions.maintenance-cron:0 0 3 * * *}", zone = "UTC")
+    public void maintain() {
+        val now = YearMonth.now(ZoneOffset.UTC);
+        createPartitions(now, now.plusMonths(monthsAhead));
+        if (retentionMonths > 0) {
+            detachPartitionsBefore(now.minusMonths(retentionMonths));
+        }
+    }
+
+    /**
+     * Creates the missing partitions for every month from {@code from} to {@code to}, inclusive.
+     * A month that already has rows in the default partition is skipped, since attaching it would fail.
+     *
+     * @return names of the partitions created
+     */
+    public List<String> createPartitions(YearMonth from, YearMonth to) {
+        jdbcTemplate.execute(LOCK_SQL);
+        val existing = partitions();
+        val created = new ArrayList<String>();
+        for (var month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            val name = partitionName(month);
+            if (existing.contains(name)) {
+                continue;
+            }
+            val lower = lowerBound(month);
+            val upper = lowerBound(month.plusMonths(1));
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(DEFAULT_PARTITION_HAS_ROWS_SQL, Boolean.class, lower, upper))) {
+                log.warn("Not creating {}: watched_movies_default already holds rows for {}", name, month);
+                continue;
+            }
+            jdbcTemplate.execute("create table %s partition of watched_movies for values from ('%s') to ('%s')"
+                    .formatted(name, lower, upper));
+            created.add(name);
+        }
+        return created;
+    }
+
+    /**
+     * Detaches the partitions of every month before {@code cutoff}. Detaching briefly locks
+     * {@code watched_movies} exclusively.
+     *
+     * @return names of the partitions detached
+     */
+    public List<String> detachPartitionsBefore(YearMonth cutoff) {
+        jdbcTemplate.execute(LOCK_SQL);
+        val cutoffName = partitionName(cutoff);
+        val detached = new ArrayList<String>();
+        for (val name : partitions()) {
+            // yyyy_MM suffixes sort chronologically
+            if (name.compareTo(cutoffName) < 0) {
+                jdbcTemplate.execute("alter table watched_movies detach partition " + name);
+                detached.add(name);
+            }
+        }
+        return detached;
+    }
+
+    public List<String> partitions() {
+        return jdbcTemplate.queryForList(PARTITIONS_SQL, String.class);
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+    }
+
+    static String lowerBound(YearMonth month) {
+        return month.atDay(1) + " 00:00:00+00";
+    }
+}
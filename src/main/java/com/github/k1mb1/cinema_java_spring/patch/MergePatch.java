@@ -0,0 +1,84 @@
+package com.github.k1mb1.cinema_java_spring.patch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.Collectors;
+
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.PATCH_INVALID;
+
+/**
+ * Applies JSON Merge Patch (RFC 7396) documents to request dtos.
+ * <p>
+ * Members of the patch replace the current value, {@code null} members remove it and nested objects
+ * are merged recursively. Services turn the entity into its request dto, patch that and copy back
+ * only what changed.
+ */
+@Component
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true)
+public class MergePatch {
+
+    public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+    ObjectMapper objectMapper;
+    Validator validator;
+
+    /**
+     * @return a new instance of {@code target}'s type with {@code patch} applied
+     * @throws BadRequestException if the patch is not an object, names an unknown field or leaves the dto invalid
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T apply(@NonNull JsonNode patch, @NonNull T target) {
+        if (!patch.isObject()) {
+            throw new BadRequestException(PATCH_INVALID.formatted("expected a JSON object"));
+        }
+        final T patched;
+        try {
+            patched = (T) objectMapper.readerFor(target.getClass())
+                    // A misspelt field would otherwise be a silent no-op
+                    .with(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                    .readValue(merge(objectMapper.valueToTree(target), patch));
+        } catch (JsonProcessingException e) {
+            throw new BadRequestException(PATCH_INVALID.formatted(e.getOriginalMessage()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        val violations = validator.validate(patched);
+        if (!violations.isEmpty()) {
+            throw new BadRequestException(PATCH_INVALID.formatted(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "))));
+        }
+        return patched;
+    }
+
+    static JsonNode merge(JsonNode target, JsonNode patch) {
+        if (!patch.isObject()) {
+            return patch;
+        }
+        val result = target instanceof ObjectNode object ? object.deepCopy() : ((ObjectNode) patch).objectNode();
+        patch.fields().forEachRemaining(member -> {
+            if (member.getValue().isNull()) {
+                result.remove(member.getKey());
+            } else {
+                result.set(member.getKey(), merge(result.get(member.getKey()), member.getValue()));
+            }
+        });
+        return result;
+    }
+}
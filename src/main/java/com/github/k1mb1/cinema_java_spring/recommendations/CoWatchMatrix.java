@@ -0,0 +1,95 @@
+package com.github.k1mb1.cinema_java_spring.recommendations;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+
+import java.util.Arrays;
+
+/**
+ * The user → movie watch matrix in compressed sparse row form, indexed both ways.
+ * <p>
+ * Movies and users are numbered densely from 0; the watchers of movie {@code m} are
+ * {@code movieUsers[movieOffsets[m] .. movieOffsets[m + 1])}, and likewise for the movies of a user.
+ * Everything is a primitive {@code int[]}, so a million watches take a few tens of megabytes.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(makeFinal = true)
+public class CoWatchMatrix {
+
+    /**
+     * Movie ids by movie number, ascending.
+     */
+    int[] movieIds;
+    int[] movieOffsets;
+    int[] movieUsers;
+    int[] userOffsets;
+    int[] userMovies;
+
+    /**
+     * @param movieIds movie of each watch, ascending
+     * @param userIds  user of each watch
+     * @param size     number of watches in both arrays
+     */
+    public static CoWatchMatrix of(int[] movieIds, int[] userIds, int size) {
+        val distinctMovies = Arrays.stream(movieIds, 0, size).distinct().toArray();
+        val distinctUsers = Arrays.stream(userIds, 0, size).distinct().sorted().toArray();
+
+        val movieOffsets = new int[distinctMovies.length + 1];
+        val movieUsers = new int[size];
+        val userOffsets = new int[distinctUsers.length + 1];
+        for (int row = 0, movie = -1; row < size; row++) {
+            if (movie < 0 || distinctMovies[movie] != movieIds[row]) {
+                movieOffsets[++movie] = row;
+            }
+            movieUsers[row] = Arrays.binarySearch(distinctUsers, userIds[row]);
+            userOffsets[movieUsers[row] + 1]++;
+        }
+        movieOffsets[distinctMovies.length] = size;
+        Arrays.parallelPrefix(userOffsets, Integer::sum);
+
+        val userMovies = new int[size];
+        val fill = Arrays.copyOf(userOffsets, distinctUsers.length);
+        for (int movie = 0; movie < distinctMovies.length; movie++) {
+            for (int row = movieOffsets[movie]; row < movieOffsets[movie + 1]; row++) {
+                userMovies[fill[movieUsers[row]]++] = movie;
+            }
+        }
+        return new CoWatchMatrix(distinctMovies, movieOffsets, movieUsers, userOffsets, userMovies);
+    }
+
+    public int movies() {
+        return movieIds.length;
+    }
+
+    public int movieId(int movie) {
+        return movieIds[movie];
+    }
+
+    /**
+     * @return number of users who watched the movie
+     */
+    public int watchers(int movie) {
+        return movieOffsets[movie + 1] - movieOffsets[movie];
+    }
+
+    /**
+     * Adds one to {@code counts[other]} for every watcher of {@code movie} who also watched {@code other}.
+     *
+     * @return how many entries of {@code touched} were filled with movies whose count went from zero to one
+     */
+    int countCoWatches(int movie, int[] counts, int[] touched) {
+        int filled = 0;
+        for (int row = movieOffsets[movie]; row < movieOffsets[movie + 1]; row++) {
+            val user = movieUsers[row];
+            for (int column = userOffsets[user]; column < userOffsets[user + 1]; column++) {
+                val other = userMovies[column];
+                if (other != movie && counts[other]++ == 0) {
+                    touched[filled++] = other;
+                }
+            }
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.k1mb1.cinema_java_spring.recommendations;
+
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Item-item cosine similarity over sets of watchers:
+ * {@code |users(a) ∩ users(b)| / sqrt(|users(a)| * |users(b)|)}.
+ * <p>
+ * Movies are split into ranges processed as fork-join tasks. Each leaf counts co-watches for one
+ * movie at a time into a scratch array indexed by movie number, keeps the best {@code neighbours}
+ * and resets only the entries it touched, so no work is shared between tasks.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true)
+public class ItemSimilarity {
+
+    static final int MIN_RANGE = 64;
+
+    /**
+     * Neighbours kept per movie.
+     */
+    int neighbours;
+
+    /**
+     * Pairs watched together by fewer users are ignored; a single shared viewer says little.
+     */
+    int minCoWatchers;
+
+    public SimilarityIndex compute(CoWatchMatrix matrix, ForkJoinPool pool) {
+        val movies = matrix.movies();
+        val ids = new int[movies][];
+        val scores = new float[movies][];
+        // Leaves large enough that each allocates its scratch arrays only a few times per worker
+        val range = Math.max(MIN_RANGE, movies / (pool.getParallelism() * 8));
+        pool.invoke(new Task(matrix, 0, movies, range, ids, scores));
+
+        val movieIds = new int[movies];
+        for (int movie = 0; movie < movies; movie++) {
+            movieIds[movie] = matrix.movieId(movie);
+        }
+        return new SimilarityIndex(movieIds, ids, scores);
+    }
+
+    void computeRange(CoWatchMatrix matrix, int from, int to, int[][] ids, float[][] scores) {
+        val counts = new int[matrix.movies()];
+        val touched = new int[matrix.movies()];
+        val bestIds = new int[neighbours];
+        val bestScores = new float[neighbours];
+        for (int movie = from; movie < to; movie++) {
+            val filled = matrix.countCoWatches(movie, counts, touched);
+            int kept = 0;
+            for (int i = 0; i < filled; i++) {
+                val other = touched[i];
+                if (counts[other] >= minCoWatchers) {
+                    val score = (float) (counts[other] / Math.sqrt((double) matrix.watchers(movie) * matrix.watchers(other)));
+                    kept = keep(bestIds, bestScores, kept, matrix.movieId(other), score);
+                }
+                counts[other] = 0;
+            }
+            ids[movie] = Arrays.copyOf(bestIds, kept);
+            scores[movie] = Arrays.copyOf(bestScores, kept);
+        }
+    }
+
+    /**
+     * Inserts the candidate into the sorted top list (score descending, then id ascending) if it qualifies.
+     *
+     * @return the new number of entries in the list
+     */
+    static int keep(int[] bestIds, float[] bestScores, int kept, int id, float score) {
+        int position = kept;
+        while (position > 0 && (score > bestScores[position - 1]
+                || score == bestScores[position - 1] && id < bestIds[position - 1])) {
+            position--;
+        }
+        if (position >= bestIds.length) {
+            return kept;
+        }
+        val last = Math.min(kept, bestIds.length - 1);
+        System.arraycopy(bestIds, position, bestIds, position + 1, last - position);
+        System.arraycopy(bestScores, position, bestScores, position + 1, last - position);
+        bestIds[position] = id;
+        bestScores[position] = score;
+        return Math.min(kept + 1, bestIds.length);
+    }
+
+    @RequiredArgsConstructor
+    @FieldDefaults(makeFinal = true)
+    class Task extends RecursiveAction {
+
+        CoWatchMatrix matrix;
+        int from;
+        int to;
+        int range;
+        int[][] ids;
+        float[][] scores;
+
+        @Override
+        protected void compute() {
+            if (to - from <= range) {
+                computeRange(matrix, from, to, ids, scores);
+                return;
+            }
+            val middle = (from + to) >>> 1;
+            invokeAll(
+                    new Task(matrix, from, middle, range, ids, scores),
+                    new Task(matrix, middle, to, range, ids, scores)
+            );
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.k1mb1.cinema_java_spring.recommendations;
+
+import com.github.k1mb1.cinema_java_spring.dtos.movie.SimilarMovieDto;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * "Viewers also watched": item-item neighbours of every movie, recomputed from {@code watched_movies}
+ * on startup and periodically, and served from memory.
+ */
+@Component
+@FieldDefaults(makeFinal = true)
+public class SimilarMovies {
+
+    static final String WATCHES_SQL = "select movie_id, user_id from watched_movies order by movie_id";
+    static final int FETCH_SIZE = 10_000;
+
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate loadTransaction;
+    ItemSimilarity similarity;
+    int parallelism;
+    AtomicReference<SimilarityIndex> current = new AtomicReference<>(SimilarityIndex.EMPTY);
+
+    public SimilarMovies(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${cinema.recommendations.neighbours:20}") int neighbours,
+            @Value("${cinema.recommendations.min-co-watchers:2}") int minCoWatchers,
+            @Value("${cinema.recommendations.parallelism:0}") int parallelism
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        // PostgreSQL only streams with a fetch size inside a transaction
+        this.loadTransaction = new TransactionTemplate(transactionManager);
+        this.loadTransaction.setReadOnly(true);
+        this.similarity = new ItemSimilarity(neighbours, minCoWatchers);
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the neighbours of the movie, empty if it has no watches as of the last rebuild
+     */
+    public Optional<List<SimilarMovieDto>> find(int movieId, int limit) {
+        return current.get().find(movieId, limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "${cinema.recommendations.refresh-interval:PT1H}",
+            fixedDelayString = "${cinema.recommendations.refresh-interval:PT1H}"
+    )
+    public void rebuild() {
+        val matrix = loadTransaction.execute(status -> load());
+        // A pool of its own, so the computation neither waits for nor starves the common pool
+        try (val pool = new ForkJoinPool(parallelism)) {
+            current.set(similarity.compute(matrix, pool));
+        }
+    }
+
+    public int size() {
+        return current.get().size();
+    }
+
+    CoWatchMatrix load() {
+        val watches = new Watches();
+        jdbcTemplate.query(
+                connection -> {
+                    val statement = connection.prepareStatement(
+                            WATCHES_SQL,
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY
+                    );
+                    statement.setFetchSize(FETCH_SIZE);
+                    return statement;
+                },
+                resultSet -> {
+                    watches.add(resultSet.getInt("movie_id"), resultSet.getInt("user_id"));
+                }
+        );
+        return CoWatchMatrix.of(watches.movieIds, watches.userIds, watches.size);
+    }
+
+    /**
+     * Growable pair of primitive columns.
+     */
+    static class Watches {
+
+        int[] movieIds = new int[FETCH_SIZE];
+        int[] userIds = new int[FETCH_SIZE];
+        int size;
+
+        void add(int movieId, int userId) {
+            if (size == movieIds.length) {
+                movieIds = Arrays.copyOf(movieIds, size * 2);
+                userIds = Arrays.copyOf(userIds, size * 2);
+            }
+            movieIds[size] = movieId;
+            userIds[size] = userId;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.k1mb1.cinema_java_spring.recommendations;
+
+import com.github.k1mb1.cinema_java_spring.dtos.movie.SimilarMovieDto;
+import lombok.val;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Precomputed nearest neighbours of every movie, best first.
+ *
+ * @param movieIds   movie ids, ascending
+ * @param neighbours neighbour movie ids of the movie at the same position
+ * @param scores     similarity of each neighbour
+ */
+public record SimilarityIndex(int[] movieIds, int[][] neighbours, float[][] scores) {
+
+    public static final SimilarityIndex EMPTY = new SimilarityIndex(new int[0], new int[0][], new float[0][]);
+
+    /**
+     * @return up to {@code limit} neighbours, empty if the movie has no watches in the index
+     */
+    public Optional<List<SimilarMovieDto>> find(int movieId, int limit) {
+        val position = Arrays.binarySearch(movieIds, movieId);
+        if (position < 0) {
+            return Optional.empty();
+        }
+        val count = Math.min(limit, neighbours[position].length);
+        val similar = new ArrayList<SimilarMovieDto>(count);
+        for (int i = 0; i < count; i++) {
+            similar.add(new SimilarMovieDto(neighbours[position][i], (double) scores[position][i]));
+        }
+        return Optional.of(similar);
+    }
+
+    public int size() {
+        return movieIds.length;
+    }
+}
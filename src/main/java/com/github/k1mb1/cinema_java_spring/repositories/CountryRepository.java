@@ -1,9 +1,33 @@
 package com.github.k1mb1.cinema_java_spring.repositories;
 
 import com.github.k1mb1.cinema_java_spring.entities.Country;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 @Repository
-public interface CountryRepository extends JpaRepository<Country, Integer> {
+public interface CountryRepository extends DirectDeleteRepository<Country, Integer> {
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from countries where id = :id", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "countries"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie_countries")
+    })
+    int deleteRowById(Integer id);
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from countries where id in (:ids)", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "countries"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie_countries")
+    })
+    int deleteRowsByIdIn(Collection<Integer> ids);
 }
@@ -0,0 +1,30 @@
+package com.github.k1mb1.cinema_java_spring.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.Collection;
+
+/**
+ * Deletes as one native {@code DELETE} statement, without loading the entities as {@link #deleteById} does.
+ * Join and child rows go through {@code ON DELETE CASCADE}, which Hibernate would otherwise delete itself
+ * first, so implementations list those tables as query spaces to drop their cached entries.
+ */
+@NoRepositoryBean
+public interface DirectDeleteRepository<T, ID> extends JpaRepository<T, ID> {
+
+    /**
+     * Keeps the {@code IN} list, one bind parameter per id, well below PostgreSQL's parameter limit.
+     */
+    int MAX_IDS_PER_DELETE = 1_000;
+
+    /**
+     * @return 1 if the row existed, 0 otherwise
+     */
+    int deleteRowById(ID id);
+
+    /**
+     * @return number of rows deleted; ids that do not exist are skipped
+     */
+    int deleteRowsByIdIn(Collection<ID> ids);
+}
@@ -0,0 +1,9 @@
+package com.github.k1mb1.cinema_java_spring.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * Id and {@code updated_at} of a row, selected without loading the entity.
+ */
+public record EntityVersion(Integer id, LocalDateTime updateAt) {
+}
@@ -1,9 +1,33 @@
 package com.github.k1mb1.cinema_java_spring.repositories;
 
 import com.github.k1mb1.cinema_java_spring.entities.Genre;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+
 @Repository
-public interface GenreRepository extends JpaRepository<Genre, Integer> {
+public interface GenreRepository extends DirectDeleteRepository<Genre, Integer> {
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from genres where id = :id", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie_genres")
+    })
+    int deleteRowById(Integer id);
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from genres where id in (:ids)", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genres"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie_genres")
+    })
+    int deleteRowsByIdIn(Collection<Integer> ids);
 }
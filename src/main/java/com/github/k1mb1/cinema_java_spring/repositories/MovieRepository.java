@@ -1,9 +1,82 @@
 package com.github.k1mb1.cinema_java_spring.repositories;
 
 import com.github.k1mb1.cinema_java_spring.entities.Movie;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface MovieRepository extends JpaRepository<Movie, Integer> {
+public interface MovieRepository extends DirectDeleteRepository<Movie, Integer>, MovieRepositoryCustom {
+
+    /**
+     * Loads a page found by id first: a LIMIT combined with a collection fetch join would be applied
+     * in memory, so pages are cut over ids ({@link #findVersions}) and the collections are fetched here.
+     */
+    @EntityGraph(Movie.GENRES_AND_COUNTRIES)
+    List<Movie> findByIdInOrderByIdAsc(Collection<Integer> ids);
+
+    @Override
+    @EntityGraph(Movie.GENRES_AND_COUNTRIES)
+    Optional<Movie> findById(Integer id);
+
+    /**
+     * When the movie last changed, without loading it or its collections. Not query cached: a result
+     * read from a lagging replica would be kept after the replica caught up.
+     */
+    @Query("select coalesce(m.updateAt, m.createAt) from Movie m where m.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(Integer id);
+
+    /**
+     * Full-text matches of {@code query} against title and description (GIN index on {@code search_vector}),
+     * best first, starting after the given rank/id position.
+     */
+    @Query(value = """
+            select hit.id as id, hit.rank as rank
+            from (
+                select m.id, ts_rank(m.search_vector, query) as rank
+                from movies m, websearch_to_tsquery('english', :query) query
+                where m.search_vector @@ query
+            ) hit
+            where hit.rank < :afterRank or (hit.rank = :afterRank and hit.id > :afterId)
+            order by hit.rank desc, hit.id
+            limit :limit""", nativeQuery = true)
+    List<SearchHit> search(String query, float afterRank, int afterId, int limit);
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from movies where id = :id", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movies"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie_genres"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie_countries"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "watched_movies")
+    })
+    int deleteRowById(Integer id);
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from movies where id in (:ids)", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movies"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie_genres"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "movie_countries"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "watched_movies")
+    })
+    int deleteRowsByIdIn(Collection<Integer> ids);
+
+    interface SearchHit {
+
+        Integer getId();
+
+        Float getRank();
+    }
 }
@@ -0,0 +1,17 @@
+package com.github.k1mb1.cinema_java_spring.repositories;
+
+import com.github.k1mb1.cinema_java_spring.entities.Movie;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface MovieRepositoryCustom {
+
+    /**
+     * Ids and {@code updated_at} of the movies matching {@code specification}, in id order. No entity is
+     * loaded, so the limit is applied by the database; the result versions the page for conditional GETs,
+     * and the page itself is loaded with {@link MovieRepository#findByIdInOrderByIdAsc}.
+     */
+    List<EntityVersion> findVersions(Specification<Movie> specification, Limit limit);
+}
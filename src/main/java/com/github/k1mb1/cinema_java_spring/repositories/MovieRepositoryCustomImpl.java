@@ -0,0 +1,35 @@
+package com.github.k1mb1.cinema_java_spring.repositories;
+
+import com.github.k1mb1.cinema_java_spring.entities.Movie;
+import jakarta.persistence.EntityManager;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true)
+class MovieRepositoryCustomImpl implements MovieRepositoryCustom {
+
+    EntityManager entityManager;
+
+    @Override
+    public List<EntityVersion> findVersions(@NonNull Specification<Movie> specification, @NonNull Limit limit) {
+        val cb = entityManager.getCriteriaBuilder();
+        val query = cb.createQuery(EntityVersion.class);
+        val root = query.from(Movie.class);
+        val predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(cb.construct(EntityVersion.class, root.get("id"), root.get("updateAt")))
+                .orderBy(cb.asc(root.get("id")));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit.max())
+                .getResultList();
+    }
+}
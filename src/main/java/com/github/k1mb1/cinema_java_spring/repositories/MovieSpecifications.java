@@ -0,0 +1,78 @@
+package com.github.k1mb1.cinema_java_spring.repositories;
+
+import com.github.k1mb1.cinema_java_spring.entities.Movie;
+import lombok.experimental.UtilityClass;
+import lombok.val;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Filters over {@link Movie}; each returns a no-op specification when its argument is absent,
+ * so they can be combined freely.
+ */
+@UtilityClass
+public class MovieSpecifications {
+
+    public static Specification<Movie> idGreaterThan(int id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    /**
+     * Correlated {@code exists} on the join table, so a movie in several of the genres is returned once.
+     */
+    public static Specification<Movie> inAnyGenre(Collection<Integer> genreIds) {
+        return inAny("genres", genreIds);
+    }
+
+    public static Specification<Movie> fromAnyCountry(Collection<Integer> countryIds) {
+        return inAny("countries", countryIds);
+    }
+
+    public static Specification<Movie> yearBetween(Integer from, Integer to) {
+        return between("year", from, to);
+    }
+
+    public static Specification<Movie> releasedBetween(LocalDate from, LocalDate to) {
+        return between("releaseDate", from, to);
+    }
+
+    public static Specification<Movie> durationBetween(Integer min, Integer max) {
+        return between("durationMinutes", min, max);
+    }
+
+    public static Specification<Movie> ageRatingIn(Collection<String> ageRatings) {
+        return (root, query, cb) -> ageRatings == null || ageRatings.isEmpty()
+                ? null
+                : root.get("ageRating").in(ageRatings);
+    }
+
+    static Specification<Movie> inAny(String collection, Collection<Integer> ids) {
+        return (root, query, cb) -> {
+            if (ids == null || ids.isEmpty()) {
+                return null;
+            }
+            val subquery = query.subquery(Integer.class);
+            val movie = subquery.correlate(root);
+            val joined = movie.join(collection);
+            subquery.select(joined.get("id")).where(joined.get("id").in(ids));
+            return cb.exists(subquery);
+        };
+    }
+
+    static <T extends Comparable<? super T>> Specification<Movie> between(String attribute, T from, T to) {
+        return (root, query, cb) -> {
+            if (from != null && to != null) {
+                return cb.between(root.get(attribute), from, to);
+            }
+            if (from != null) {
+                return cb.greaterThanOrEqualTo(root.get(attribute), from);
+            }
+            if (to != null) {
+                return cb.lessThanOrEqualTo(root.get(attribute), to);
+            }
+            return null;
+        };
+    }
+}
@@ -1,9 +1,47 @@
 package com.github.k1mb1.cinema_java_spring.repositories;
 
 import com.github.k1mb1.cinema_java_spring.entities.User;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface UserRepository extends JpaRepository<User, Integer> {
+public interface UserRepository extends DirectDeleteRepository<User, Integer> {
+
+    List<User> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    /**
+     * Same rows as {@link #findByIdGreaterThanOrderByIdAsc}, only their ids and {@code updated_at}.
+     */
+    List<EntityVersion> findVersionsByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    @Query("select coalesce(u.updateAt, u.createAt) from User u where u.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(Integer id);
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from users where id = :id", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "watched_movies")
+    })
+    int deleteRowById(Integer id);
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from users where id in (:ids)", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "users"),
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "watched_movies")
+    })
+    int deleteRowsByIdIn(Collection<Integer> ids);
 }
@@ -1,9 +1,59 @@
 package com.github.k1mb1.cinema_java_spring.repositories;
 
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchHistoryItemDto;
 import com.github.k1mb1.cinema_java_spring.entities.WatchedMovie;
-import org.springframework.data.jpa.repository.JpaRepository;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface WatchedMovieRepository extends JpaRepository<WatchedMovie, Integer> {
+public interface WatchedMovieRepository extends DirectDeleteRepository<WatchedMovie, Integer> {
+
+    List<WatchedMovie> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    /**
+     * Same rows as {@link #findByIdGreaterThanOrderByIdAsc}, only their ids and {@code updated_at}.
+     */
+    List<EntityVersion> findVersionsByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
+
+    @Query("select coalesce(w.updateAt, w.createAt) from WatchedMovie w where w.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(Integer id);
+
+    /**
+     * The user's history newest first, starting after the given watchedAt/id position;
+     * a range scan of {@code watched_movies_user_id_watched_at_idx} joined to the movie titles.
+     */
+    @Query("""
+            select new com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchHistoryItemDto(
+                w.id, m.id, m.title, w.watchedAt
+            )
+            from WatchedMovie w join w.movie m
+            where w.user.id = :userId and (w.watchedAt, w.id) < (:afterWatchedAt, :afterId)
+            order by w.watchedAt desc, w.id desc""")
+    List<WatchHistoryItemDto> findHistory(Integer userId, LocalDateTime afterWatchedAt, int afterId, Limit limit);
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from watched_movies where id = :id", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "watched_movies")
+    })
+    int deleteRowById(Integer id);
+
+    @Override
+    @Modifying(clearAutomatically = true)
+    @Query(value = "delete from watched_movies where id in (:ids)", nativeQuery = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "watched_movies")
+    })
+    int deleteRowsByIdIn(Collection<Integer> ids);
 }
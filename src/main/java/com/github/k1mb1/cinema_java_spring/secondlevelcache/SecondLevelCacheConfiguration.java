@@ -0,0 +1,59 @@
+package com.github.k1mb1.cinema_java_spring.secondlevelcache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import lombok.val;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.CacheSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ObjectUtils;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache, kept in Caffeine through JCache.
+ * <p>
+ * Regions are created here from {@link SecondLevelCacheProperties}; Hibernate fails to start on a
+ * region that is not configured instead of creating an unbounded one. Hit and miss counts per region
+ * are published as {@code hibernate.second.level.cache.*}, evictions as {@code cache.evictions}.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfiguration {
+
+    @Bean(destroyMethod = "close")
+    CacheManager secondLevelCacheManager(SecondLevelCacheProperties properties, MeterRegistry meterRegistry) {
+        // One manager per application context, tests start several in the same JVM
+        val cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("hibernate-" + ObjectUtils.getIdentityHexString(properties)), getClass().getClassLoader());
+        properties.getRegions().forEach((name, region) -> {
+            val configuration = new CaffeineConfiguration<>()
+                    .setStatisticsEnabled(true)
+                    .setMaximumSize(region.getMaxEntries() != null ? OptionalLong.of(region.getMaxEntries()) : OptionalLong.empty())
+                    .setExpireAfterWrite(region.getExpireAfterWrite() != null
+                            ? OptionalLong.of(region.getExpireAfterWrite().toNanos())
+                            : OptionalLong.empty());
+            JCacheMetrics.monitor(meterRegistry, cacheManager.createCache(name, configuration), Tags.empty());
+        });
+        return cacheManager;
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(CacheSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(CacheSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
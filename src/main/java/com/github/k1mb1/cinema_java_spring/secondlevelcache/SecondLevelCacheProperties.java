@@ -0,0 +1,38 @@
+package com.github.k1mb1.cinema_java_spring.secondlevelcache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hibernate second-level cache regions.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("cinema.second-level-cache")
+public class SecondLevelCacheProperties {
+
+    /**
+     * By region name. Every region used by an entity, collection or query must be listed.
+     */
+    Map<String, Region> regions = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Region {
+
+        /**
+         * Entries kept before eviction starts; unbounded when not set.
+         */
+        Long maxEntries;
+        /**
+         * How long an entry is served after it was cached; bounds how long changes made by other
+         * instances go unseen. Never expires when not set.
+         */
+        Duration expireAfterWrite;
+    }
+}
@@ -1,20 +1,34 @@
 package com.github.k1mb1.cinema_java_spring.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.conditional.ResourceVersion;
+import com.github.k1mb1.cinema_java_spring.conditional.Versioned;
 import com.github.k1mb1.cinema_java_spring.dtos.country.CountryRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.country.CountryResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
 import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
 import com.github.k1mb1.cinema_java_spring.mappers.CountryMapper;
+import com.github.k1mb1.cinema_java_spring.offheap.MovieJsonCache;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.repositories.CountryRepository;
+import com.github.k1mb1.cinema_java_spring.snapshots.CountrySnapshotCache;
+import com.github.k1mb1.cinema_java_spring.snapshots.EncodedPage;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.val;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.BULK_TOO_LARGE;
 import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.COUNTRY_NOT_FOUND;
+import static com.github.k1mb1.cinema_java_spring.repositories.DirectDeleteRepository.MAX_IDS_PER_DELETE;
 
 @Service
 @RequiredArgsConstructor
@@ -24,26 +38,53 @@ public class CountryService {
 
     CountryRepository countryRepository;
     CountryMapper countryMapper;
+    CountrySnapshotCache countrySnapshotCache;
+    MovieJsonCache movieJsonCache;
+    MergePatch mergePatch;
 
     public CountryResponseDto createCountry(@NonNull CountryRequestDto countryRequestDto) {
-        return countryMapper.toDto(
-                countryRepository.save(countryMapper.toEntity(countryRequestDto))
-        );
+        val savedCountry = countryRepository.save(countryMapper.toEntity(countryRequestDto));
+        countrySnapshotCache.reloadAfterCommit();
+        return countryMapper.toDto(savedCountry);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public CountryResponseDto getCountryById(@NonNull Integer id) {
-        return countryMapper.toDto(
-                countryRepository.findById(id)
-                        .orElseThrow(() -> new NotFoundException(COUNTRY_NOT_FOUND.formatted(id)))
+        return countrySnapshotCache.findById(id)
+                .orElseThrow(() -> new NotFoundException(COUNTRY_NOT_FOUND.formatted(id)));
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CursorPageResponseDto<CountryResponseDto> getAllCountries(String after, Integer limit) {
+        return countrySnapshotCache.read().page(after, limit);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Versioned<CountryResponseDto> getCountryById(
+            @NonNull Integer id,
+            @NonNull Predicate<ResourceVersion> clientHas
+    ) {
+        val country = getCountryById(id);
+        return Versioned.resolve(ResourceVersion.of(country.getUpdateAt(), "country", id), clientHas, () -> country);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Versioned<CursorPageResponseDto<CountryResponseDto>> getAllCountries(
+            String after,
+            Integer limit,
+            @NonNull Predicate<ResourceVersion> clientHas
+    ) {
+        val snapshot = countrySnapshotCache.read();
+        return Versioned.resolve(
+                ResourceVersion.of(null, "countries", snapshot.version()),
+                clientHas,
+                () -> snapshot.page(after, limit)
         );
     }
 
-    @Transactional(readOnly = true)
-    public List<CountryResponseDto> getAllCountries() {
-        return countryRepository.findAll().stream()
-                .map(countryMapper::toDto)
-                .toList();
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public EncodedPage getAllCountriesFirstPage() {
+        return countrySnapshotCache.read().firstPage();
     }
 
     public CountryResponseDto updateCountry(@NonNull Integer id, @NonNull CountryRequestDto countryRequestDto) {
@@ -55,13 +96,52 @@ public class CountryService {
                 .setCreateAt(existingCountry.getCreateAt())
                 .setMovies(existingCountry.getMovies());
 
-        return countryMapper.toDto(countryRepository.save(updatedCountry));
+        val savedCountry = countryRepository.save(updatedCountry);
+        countrySnapshotCache.reloadAfterCommit();
+        // Cached movie bodies embed the country names
+        movieJsonCache.invalidateAll();
+        return countryMapper.toDto(savedCountry);
+    }
+
+    /**
+     * Applies a JSON Merge Patch; nothing is written when it changes nothing.
+     */
+    public CountryResponseDto patchCountry(@NonNull Integer id, @NonNull JsonNode patch) {
+        val country = countryRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException(COUNTRY_NOT_FOUND.formatted(id)));
+        val current = countryMapper.toRequestDto(country);
+        val patched = mergePatch.apply(patch, current);
+        if (patched.equals(current)) {
+            return countryMapper.toDto(country);
+        }
+
+        countryMapper.updateEntity(patched, country);
+        val savedCountry = countryRepository.saveAndFlush(country);
+        countrySnapshotCache.reloadAfterCommit();
+        movieJsonCache.invalidateAll();
+        return countryMapper.toDto(savedCountry);
     }
 
     public void deleteCountry(@NonNull Integer id) {
-        if (!countryRepository.existsById(id)) {
+        if (countryRepository.deleteRowById(id) == 0) {
             throw new NotFoundException(COUNTRY_NOT_FOUND.formatted(id));
         }
-        countryRepository.deleteById(id);
+        countrySnapshotCache.reloadAfterCommit();
+        movieJsonCache.invalidateAll();
+    }
+
+    public BulkDeleteResponseDto deleteCountries(@NonNull Set<Integer> ids) {
+        if (ids.size() > MAX_IDS_PER_DELETE) {
+            throw new BadRequestException(BULK_TOO_LARGE.formatted(MAX_IDS_PER_DELETE));
+        }
+        if (ids.isEmpty()) {
+            return new BulkDeleteResponseDto(0);
+        }
+        val deleted = countryRepository.deleteRowsByIdIn(ids);
+        if (deleted > 0) {
+            countrySnapshotCache.reloadAfterCommit();
+            movieJsonCache.invalidateAll();
+        }
+        return new BulkDeleteResponseDto(deleted);
     }
 }
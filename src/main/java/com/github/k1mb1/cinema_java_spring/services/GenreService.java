@@ -1,20 +1,34 @@
 package com.github.k1mb1.cinema_java_spring.services;
 
-import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.conditional.ResourceVersion;
+import com.github.k1mb1.cinema_java_spring.conditional.Versioned;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
 import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
+import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
 import com.github.k1mb1.cinema_java_spring.mappers.GenreMapper;
+import com.github.k1mb1.cinema_java_spring.offheap.MovieJsonCache;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.repositories.GenreRepository;
+import com.github.k1mb1.cinema_java_spring.snapshots.EncodedPage;
+import com.github.k1mb1.cinema_java_spring.snapshots.GenreSnapshotCache;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.val;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.BULK_TOO_LARGE;
 import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.GENRE_NOT_FOUND;
+import static com.github.k1mb1.cinema_java_spring.repositories.DirectDeleteRepository.MAX_IDS_PER_DELETE;
 
 @Service
 @RequiredArgsConstructor
@@ -24,25 +38,53 @@ public class GenreService {
 
     GenreRepository genreRepository;
     GenreMapper genreMapper;
+    GenreSnapshotCache genreSnapshotCache;
+    MovieJsonCache movieJsonCache;
+    MergePatch mergePatch;
 
     public GenreResponseDto createGenre(@NonNull GenreRequestDto genreRequestDto) {
-        return genreMapper.toDto(
-                genreRepository.save(genreMapper.toEntity(genreRequestDto))
-        );
+        val savedGenre = genreRepository.save(genreMapper.toEntity(genreRequestDto));
+        genreSnapshotCache.reloadAfterCommit();
+        return genreMapper.toDto(savedGenre);
     }
 
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS)
     public GenreResponseDto getGenreById(@NonNull Integer id) {
-        return genreMapper.toDto(
-                genreRepository.findById(id)
-                        .orElseThrow(() -> new NotFoundException(GENRE_NOT_FOUND.formatted(id))));
+        return genreSnapshotCache.findById(id)
+                .orElseThrow(() -> new NotFoundException(GENRE_NOT_FOUND.formatted(id)));
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CursorPageResponseDto<GenreResponseDto> getAllGenres(String after, Integer limit) {
+        return genreSnapshotCache.read().page(after, limit);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Versioned<GenreResponseDto> getGenreById(
+            @NonNull Integer id,
+            @NonNull Predicate<ResourceVersion> clientHas
+    ) {
+        val genre = getGenreById(id);
+        return Versioned.resolve(ResourceVersion.of(genre.getUpdateAt(), "genre", id), clientHas, () -> genre);
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Versioned<CursorPageResponseDto<GenreResponseDto>> getAllGenres(
+            String after,
+            Integer limit,
+            @NonNull Predicate<ResourceVersion> clientHas
+    ) {
+        val snapshot = genreSnapshotCache.read();
+        return Versioned.resolve(
+                ResourceVersion.of(null, "genres", snapshot.version()),
+                clientHas,
+                () -> snapshot.page(after, limit)
+        );
     }
 
-    @Transactional(readOnly = true)
-    public List<GenreResponseDto> getAllGenres() {
-        return genreRepository.findAll().stream()
-                .map(genreMapper::toDto)
-                .toList();
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public EncodedPage getAllGenresFirstPage() {
+        return genreSnapshotCache.read().firstPage();
     }
 
     public GenreResponseDto updateGenre(@NonNull Integer id, @NonNull GenreRequestDto genreRequestDto) {
@@ -54,13 +96,52 @@ public class GenreService {
                 .setCreateAt(existingGenre.getCreateAt())
                 .setMovies(existingGenre.getMovies());
 
-        return genreMapper.toDto(genreRepository.save(updatedGenre));
+        val savedGenre = genreRepository.save(updatedGenre);
+        genreSnapshotCache.reloadAfterCommit();
+        // Cached movie bodies embed the genre names
+        movieJsonCache.invalidateAll();
+        return genreMapper.toDto(savedGenre);
+    }
+
+    /**
+     * Applies a JSON Merge Patch; nothing is written when it changes nothing.
+     */
+    public GenreResponseDto patchGenre(@NonNull Integer id, @NonNull JsonNode patch) {
+        val genre = genreRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException(GENRE_NOT_FOUND.formatted(id)));
+        val current = genreMapper.toRequestDto(genre);
+        val patched = mergePatch.apply(patch, current);
+        if (patched.equals(current)) {
+            return genreMapper.toDto(genre);
+        }
+
+        genreMapper.updateEntity(patched, genre);
+        val savedGenre = genreRepository.saveAndFlush(genre);
+        genreSnapshotCache.reloadAfterCommit();
+        movieJsonCache.invalidateAll();
+        return genreMapper.toDto(savedGenre);
     }
 
     public void deleteGenre(@NonNull Integer id) {
-        if (!genreRepository.existsById(id)) {
+        if (genreRepository.deleteRowById(id) == 0) {
             throw new NotFoundException(GENRE_NOT_FOUND.formatted(id));
         }
-        genreRepository.deleteById(id);
+        genreSnapshotCache.reloadAfterCommit();
+        movieJsonCache.invalidateAll();
+    }
+
+    public BulkDeleteResponseDto deleteGenres(@NonNull Set<Integer> ids) {
+        if (ids.size() > MAX_IDS_PER_DELETE) {
+            throw new BadRequestException(BULK_TOO_LARGE.formatted(MAX_IDS_PER_DELETE));
+        }
+        if (ids.isEmpty()) {
+            return new BulkDeleteResponseDto(0);
+        }
+        val deleted = genreRepository.deleteRowsByIdIn(ids);
+        if (deleted > 0) {
+            genreSnapshotCache.reloadAfterCommit();
+            movieJsonCache.invalidateAll();
+        }
+        return new BulkDeleteResponseDto(deleted);
     }
 }
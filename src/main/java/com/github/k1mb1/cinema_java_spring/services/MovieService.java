@@ -1,24 +1,59 @@
 package com.github.k1mb1.cinema_java_spring.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.coalescing.SingleFlight;
+import com.github.k1mb1.cinema_java_spring.conditional.ResourceVersion;
+import com.github.k1mb1.cinema_java_spring.conditional.Versioned;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
 import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieBulkItemResultDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieBulkResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieFilterDto;
 import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.SimilarMovieDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.TrendingMovieDto;
+import com.github.k1mb1.cinema_java_spring.dtos.multiget.MultiGetResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.Country;
 import com.github.k1mb1.cinema_java_spring.entities.Genre;
+import com.github.k1mb1.cinema_java_spring.entities.Movie;
 import com.github.k1mb1.cinema_java_spring.mappers.MovieMapper;
-import com.github.k1mb1.cinema_java_spring.repositories.CountryRepository;
-import com.github.k1mb1.cinema_java_spring.repositories.GenreRepository;
+import com.github.k1mb1.cinema_java_spring.multiget.MultiGet;
+import com.github.k1mb1.cinema_java_spring.offheap.MovieJsonCache;
+import com.github.k1mb1.cinema_java_spring.pagination.Keyset;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
+import com.github.k1mb1.cinema_java_spring.recommendations.SimilarMovies;
+import com.github.k1mb1.cinema_java_spring.repositories.EntityVersion;
 import com.github.k1mb1.cinema_java_spring.repositories.MovieRepository;
+import com.github.k1mb1.cinema_java_spring.repositories.MovieRepository.SearchHit;
+import com.github.k1mb1.cinema_java_spring.snapshots.CountrySnapshotCache;
+import com.github.k1mb1.cinema_java_spring.snapshots.GenreSnapshotCache;
+import com.github.k1mb1.cinema_java_spring.trending.TrendingMovies;
+import com.github.k1mb1.cinema_java_spring.trending.TrendingWindow;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.val;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.BULK_TOO_LARGE;
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.SEARCH_QUERY_BLANK;
+import static com.github.k1mb1.cinema_java_spring.repositories.DirectDeleteRepository.MAX_IDS_PER_DELETE;
+import static com.github.k1mb1.cinema_java_spring.repositories.MovieSpecifications.*;
 
 @Service
 @RequiredArgsConstructor
@@ -26,43 +61,198 @@ import java.util.Set;
 @FieldDefaults(makeFinal = true)
 public class MovieService {
 
+    public static final int BULK_MAX_SIZE = 10_000;
+    /**
+     * Matches {@code hibernate.jdbc.batch_size} and the {@code movies_id_seq} allocation size.
+     */
+    static final int BULK_CHUNK_SIZE = 50;
+    /**
+     * Statements of the largest {@link #createMovies} call: per chunk, the {@code movies_id_seq} fetch and
+     * the {@code movies}, {@code movie_genres} and {@code movie_countries} batches, plus slack for the
+     * genre and country lookups.
+     */
+    public static final int BULK_STATEMENT_BUDGET = BULK_MAX_SIZE / BULK_CHUNK_SIZE * 4 + 10;
+    static final int SIMILAR_DEFAULT_LIMIT = 10;
+    static final int SIMILAR_MAX_LIMIT = 20;
+
     MovieRepository movieRepository;
-    GenreRepository genreRepository;
-    CountryRepository countryRepository;
+    GenreSnapshotCache genreSnapshotCache;
+    CountrySnapshotCache countrySnapshotCache;
     MovieMapper movieMapper;
+    Validator validator;
+    EntityManager entityManager;
+    TrendingMovies trendingMovies;
+    SimilarMovies similarMovies;
+    MovieJsonCache movieJsonCache;
+    MergePatch mergePatch;
+    SingleFlight<ResourceVersion, byte[]> movieReads;
 
     public MovieResponseDto createMovie(@NonNull MovieRequestDto movieRequestDto) {
         val movie = movieMapper.toEntity(movieRequestDto);
 
-        // Set genres if provided
-        if (movieRequestDto.getGenreIds() != null && !movieRequestDto.getGenreIds().isEmpty()) {
-            Set<Genre> genres = new HashSet<>(genreRepository.findAllById(movieRequestDto.getGenreIds()));
-            movie.setGenres(genres);
+        // Resolve genres and countries from the in-memory snapshots
+        movie.setGenres(genreSnapshotCache.resolve(movieRequestDto.getGenreIds()));
+        movie.setCountries(countrySnapshotCache.resolve(movieRequestDto.getCountryIds()));
+
+        val savedMovie = movieRepository.save(movie);
+        return movieMapper.toDto(savedMovie);
+    }
+
+    /**
+     * Creates all valid movies in one transaction.
+     * <p>
+     * Items failing bean validation are reported back by index and skipped; genre and country ids
+     * are resolved once for the whole request. Inserts are flushed in JDBC batches of
+     * {@value #BULK_CHUNK_SIZE} and the persistence context is cleared between chunks.
+     */
+    public MovieBulkResponseDto createMovies(@NonNull List<MovieRequestDto> movieRequestDtos) {
+        if (movieRequestDtos.size() > BULK_MAX_SIZE) {
+            throw new BadRequestException(BULK_TOO_LARGE.formatted(BULK_MAX_SIZE));
         }
 
-        // Set countries if provided
-        if (movieRequestDto.getCountryIds() != null && !movieRequestDto.getCountryIds().isEmpty()) {
-            Set<Country> countries = new HashSet<>(countryRepository.findAllById(movieRequestDto.getCountryIds()));
-            movie.setCountries(countries);
+        val genres = byId(genreSnapshotCache.resolve(collectIds(movieRequestDtos, MovieRequestDto::getGenreIds)), Genre::getId);
+        val countries = byId(countrySnapshotCache.resolve(collectIds(movieRequestDtos, MovieRequestDto::getCountryIds)), Country::getId);
+
+        val results = new ArrayList<MovieBulkItemResultDto>(movieRequestDtos.size());
+        val pending = new ArrayList<Movie>(BULK_CHUNK_SIZE);
+        val pendingResults = new ArrayList<MovieBulkItemResultDto>(BULK_CHUNK_SIZE);
+        var created = 0;
+
+        for (int index = 0; index < movieRequestDtos.size(); index++) {
+            val movieRequestDto = movieRequestDtos.get(index);
+            val result = MovieBulkItemResultDto.builder().index(index).build();
+            results.add(result);
+
+            val error = validate(movieRequestDto);
+            if (error != null) {
+                result.setError(error);
+                continue;
+            }
+
+            val movie = movieMapper.toEntity(movieRequestDto)
+                    .setGenres(pick(genres, movieRequestDto.getGenreIds()))
+                    .setCountries(pick(countries, movieRequestDto.getCountryIds()));
+            pending.add(movie);
+            pendingResults.add(result);
+
+            if (pending.size() == BULK_CHUNK_SIZE) {
+                created += flush(pending, pendingResults);
+            }
         }
+        created += flush(pending, pendingResults);
 
-        val savedMovie = movieRepository.save(movie);
-        return movieMapper.toDto(savedMovie);
+        return MovieBulkResponseDto.builder()
+                .created(created)
+                .failed(results.size() - created)
+                .items(results)
+                .build();
     }
 
     @Transactional(readOnly = true)
     public MovieResponseDto getMovieById(@NonNull Integer id) {
-        return movieMapper.toDto(
-                movieRepository.findById(id)
-                        .orElseThrow(() -> new NotFoundException("Movie not found with ID: " + id))
+        return loadMovie(id);
+    }
+
+    /**
+     * Movies with their genres and countries, all fetched by one query, in the order of {@code ids}.
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResponseDto<MovieResponseDto> getMoviesByIds(@NonNull List<Integer> ids) {
+        return MultiGet.load(ids, movieRepository::findByIdInOrderByIdAsc, Movie::getId, movieMapper::toDto);
+    }
+
+    /**
+     * The movie as serialized JSON, from the off-heap cache when this version of it is there. Only the
+     * version is looked up for a client that already has it. Concurrent cache misses for the same version
+     * share one load, which runs in a read-only transaction of its own.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Versioned<byte[]> getMovieJsonById(@NonNull Integer id, @NonNull Predicate<ResourceVersion> clientHas) {
+        val updatedAt = movieRepository.findUpdatedAtById(id)
+                .orElseThrow(() -> new NotFoundException("Movie not found with ID: " + id));
+        val version = ResourceVersion.of(updatedAt, "movie", id, referenceVersions());
+        return Versioned.resolve(version, clientHas, () -> movieJsonCache.get(id, version.etag())
+                .orElseGet(() -> movieReads.load(version, () -> movieJsonCache.get(id, version.etag(), () -> loadMovie(id)))));
+    }
+
+    /**
+     * Served from memory, so no transaction (and no connection) is started.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<TrendingMovieDto> getTrendingMovies(@NonNull String window, Integer limit) {
+        return trendingMovies.top(TrendingWindow.fromParam(window), limit);
+    }
+
+    /**
+     * "Viewers also watched" neighbours, served from memory. The database is only asked when the movie
+     * has none, to tell a movie nobody watched yet from a missing one; no transaction is started for that.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<SimilarMovieDto> getSimilarMovies(@NonNull Integer id, Integer limit) {
+        val similarLimit = limit == null ? SIMILAR_DEFAULT_LIMIT : Math.clamp(limit, 1, SIMILAR_MAX_LIMIT);
+        return similarMovies.find(id, similarLimit).orElseGet(() -> {
+            if (!movieRepository.existsById(id)) {
+                throw new NotFoundException("Movie not found with ID: " + id);
+            }
+            return List.of();
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<MovieResponseDto> getAllMovies(@NonNull MovieFilterDto filter, String after, Integer limit) {
+        return getAllMovies(filter, after, limit, version -> false).body();
+    }
+
+    /**
+     * The page is versioned by the ids and {@code updated_at} of its rows (plus the probe row deciding
+     * {@code nextCursor}); movies are only loaded and mapped when the client's copy is stale.
+     */
+    @Transactional(readOnly = true)
+    public Versioned<CursorPageResponseDto<MovieResponseDto>> getAllMovies(
+            @NonNull MovieFilterDto filter,
+            String after,
+            Integer limit,
+            @NonNull Predicate<ResourceVersion> clientHas
+    ) {
+        val pageLimit = Keyset.limit(limit);
+        val specification = Specification.allOf(
+                idGreaterThan(Keyset.decode(after)),
+                inAnyGenre(filter.getGenreIds()),
+                fromAnyCountry(filter.getCountryIds()),
+                yearBetween(filter.getYearFrom(), filter.getYearTo()),
+                releasedBetween(filter.getReleasedFrom(), filter.getReleasedTo()),
+                ageRatingIn(filter.getAgeRatings()),
+                durationBetween(filter.getMinDuration(), filter.getMaxDuration())
         );
+        val rows = movieRepository.findVersions(specification, Keyset.probe(pageLimit));
+        val version = ResourceVersion.ofRows(rows, "movies", pageLimit, referenceVersions());
+        return Versioned.resolve(version, clientHas, () -> Keyset.page(
+                rows.isEmpty() ? List.of() : movieRepository.findByIdInOrderByIdAsc(rows.stream().map(EntityVersion::id).toList()),
+                pageLimit,
+                Movie::getId,
+                movieMapper::toDto
+        ));
     }
 
     @Transactional(readOnly = true)
-    public List<MovieResponseDto> getAllMovies() {
-        return movieRepository.findAll().stream()
-                .map(movieMapper::toDto)
-                .toList();
+    public CursorPageResponseDto<MovieResponseDto> searchMovies(@NonNull String query, String after, Integer limit) {
+        if (query.isBlank()) {
+            throw new BadRequestException(SEARCH_QUERY_BLANK);
+        }
+        val pageLimit = Keyset.limit(limit);
+        val cursor = Keyset.decodeRanked(after);
+        val hits = movieRepository.search(query, cursor.rank(), cursor.id(), pageLimit + 1);
+        val movies = hits.isEmpty()
+                ? Map.<Integer, Movie>of()
+                : byId(movieRepository.findByIdInOrderByIdAsc(hits.stream().map(SearchHit::getId).toList()), Movie::getId);
+        val page = Keyset.pageBy(
+                hits,
+                pageLimit,
+                hit -> Keyset.encode(hit.getRank(), hit.getId()),
+                hit -> movies.containsKey(hit.getId()) ? movieMapper.toDto(movies.get(hit.getId())) : null
+        );
+        // A movie deleted between the two queries is left out; the cursor still follows its hit
+        return page.setItems(page.getItems().stream().filter(Objects::nonNull).toList());
     }
 
     public MovieResponseDto updateMovie(@NonNull Integer id, @NonNull MovieRequestDto movieRequestDto) {
@@ -76,27 +266,159 @@ public class MovieService {
 
         // Update genres if provided
         if (movieRequestDto.getGenreIds() != null && !movieRequestDto.getGenreIds().isEmpty()) {
-            Set<Genre> genres = new HashSet<>(genreRepository.findAllById(movieRequestDto.getGenreIds()));
-            updatedMovie.setGenres(genres);
+            updatedMovie.setGenres(genreSnapshotCache.resolve(movieRequestDto.getGenreIds()));
         } else {
             updatedMovie.setGenres(existingMovie.getGenres());
         }
 
         // Update countries if provided
         if (movieRequestDto.getCountryIds() != null && !movieRequestDto.getCountryIds().isEmpty()) {
-            Set<Country> countries = new HashSet<>(countryRepository.findAllById(movieRequestDto.getCountryIds()));
-            updatedMovie.setCountries(countries);
+            updatedMovie.setCountries(countrySnapshotCache.resolve(movieRequestDto.getCountryIds()));
         } else {
             updatedMovie.setCountries(existingMovie.getCountries());
         }
 
+        movieJsonCache.invalidate(id);
         return movieMapper.toDto(movieRepository.save(updatedMovie));
     }
 
+    /**
+     * Applies a JSON Merge Patch. Only changed columns are written, and genres and countries are
+     * diffed by id against the current join rows instead of being replaced.
+     */
+    public MovieResponseDto patchMovie(@NonNull Integer id, @NonNull JsonNode patch) {
+        val movie = movieRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Movie not found with ID: " + id));
+        val current = movieMapper.toRequestDto(movie);
+        val patched = mergePatch.apply(patch, current);
+        if (patched.equals(current)) {
+            return movieMapper.toDto(movie);
+        }
+
+        movieMapper.updateEntity(patched, movie);
+        val genresChanged = sync(movie.getGenres(), patched.getGenreIds(), Genre::getId, genreSnapshotCache::resolve);
+        val countriesChanged = sync(movie.getCountries(), patched.getCountryIds(), Country::getId, countrySnapshotCache::resolve);
+        if (genresChanged || countriesChanged) {
+            // Join rows alone leave the movie row untouched; bump it so its ETag changes
+            movie.setUpdateAt(LocalDateTime.now());
+        }
+
+        movieJsonCache.invalidate(id);
+        return movieMapper.toDto(movieRepository.saveAndFlush(movie));
+    }
+
     public void deleteMovie(@NonNull Integer id) {
-        if (!movieRepository.existsById(id)) {
+        if (movieRepository.deleteRowById(id) == 0) {
             throw new NotFoundException("Movie not found with ID: " + id);
         }
-        movieRepository.deleteById(id);
+        movieJsonCache.invalidate(id);
+    }
+
+    public BulkDeleteResponseDto deleteMovies(@NonNull Set<Integer> ids) {
+        if (ids.size() > MAX_IDS_PER_DELETE) {
+            throw new BadRequestException(BULK_TOO_LARGE.formatted(MAX_IDS_PER_DELETE));
+        }
+        if (ids.isEmpty()) {
+            return new BulkDeleteResponseDto(0);
+        }
+        val deleted = movieRepository.deleteRowsByIdIn(ids);
+        if (deleted > 0) {
+            ids.forEach(movieJsonCache::invalidate);
+        }
+        return new BulkDeleteResponseDto(deleted);
+    }
+
+    MovieResponseDto loadMovie(Integer id) {
+        return movieMapper.toDto(
+                movieRepository.findById(id)
+                        .orElseThrow(() -> new NotFoundException("Movie not found with ID: " + id))
+        );
+    }
+
+    /**
+     * Movie bodies embed genre and country names, which change without touching {@code movies.updated_at}.
+     */
+    String referenceVersions() {
+        return genreSnapshotCache.read().version() + "/" + countrySnapshotCache.read().version();
+    }
+
+    int flush(List<Movie> pending, List<MovieBulkItemResultDto> pendingResults) {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        // Countries are added by a second flush: recreating both collections movie by movie alternates
+        // between the two join tables, which ends the JDBC batch on every row
+        val countries = pending.stream().map(Movie::getCountries).toList();
+        pending.forEach(movie -> movie.setCountries(new HashSet<>()));
+        movieRepository.saveAll(List.copyOf(pending));
+        entityManager.flush();
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).getCountries().addAll(countries.get(i));
+        }
+        entityManager.flush();
+        for (int i = 0; i < pending.size(); i++) {
+            pendingResults.get(i).setId(pending.get(i).getId());
+        }
+        entityManager.clear();
+
+        val flushed = pending.size();
+        pending.clear();
+        pendingResults.clear();
+        return flushed;
+    }
+
+    String validate(MovieRequestDto movieRequestDto) {
+        if (movieRequestDto == null) {
+            return "Movie cannot be null";
+        }
+        val violations = validator.validate(movieRequestDto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    /**
+     * Removes the entities not in {@code ids} and adds references for the missing ones, so only the
+     * difference is written as join rows. Unknown ids are skipped.
+     *
+     * @return whether {@code current} changed
+     */
+    static <E> boolean sync(
+            Set<E> current,
+            Set<Integer> ids,
+            Function<E, Integer> idExtractor,
+            Function<Collection<Integer>, Set<E>> resolve
+    ) {
+        val wanted = ids != null ? ids : Set.<Integer>of();
+        val removed = current.removeIf(entity -> !wanted.contains(idExtractor.apply(entity)));
+        val present = current.stream().map(idExtractor).collect(Collectors.toSet());
+        val missing = wanted.stream().filter(id -> !present.contains(id)).toList();
+        val added = !missing.isEmpty() && current.addAll(resolve.apply(missing));
+        return removed || added;
+    }
+
+    static Set<Integer> collectIds(List<MovieRequestDto> movieRequestDtos, Function<MovieRequestDto, Set<Integer>> ids) {
+        return movieRequestDtos.stream()
+                .filter(Objects::nonNull)
+                .map(ids)
+                .filter(Objects::nonNull)
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet());
+    }
+
+    static <E> Map<Integer, E> byId(Collection<E> entities, Function<E, Integer> idExtractor) {
+        return entities.stream().collect(Collectors.toMap(idExtractor, Function.identity()));
+    }
+
+    static <E> Set<E> pick(Map<Integer, E> resolved, Set<Integer> ids) {
+        val picked = new HashSet<E>();
+        if (ids != null) {
+            ids.stream().map(resolved::get).filter(Objects::nonNull).forEach(picked::add);
+        }
+        return picked;
     }
 }
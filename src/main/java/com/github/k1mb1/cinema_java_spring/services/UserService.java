@@ -1,20 +1,50 @@
 package com.github.k1mb1.cinema_java_spring.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.k1mb1.cinema_java_spring.coalescing.SingleFlight;
+import com.github.k1mb1.cinema_java_spring.conditional.ResourceVersion;
+import com.github.k1mb1.cinema_java_spring.conditional.Versioned;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.multiget.MultiGetResponseDto;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
 import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
 import com.github.k1mb1.cinema_java_spring.dtos.user.UserRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.user.UserResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchHistoryItemDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.entities.User;
 import com.github.k1mb1.cinema_java_spring.mappers.UserMapper;
+import com.github.k1mb1.cinema_java_spring.mappers.WatchedMovieMapper;
+import com.github.k1mb1.cinema_java_spring.multiget.MultiGet;
+import com.github.k1mb1.cinema_java_spring.pagination.Keyset;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.repositories.UserRepository;
+import com.github.k1mb1.cinema_java_spring.repositories.WatchedMovieRepository;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.val;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.BULK_TOO_LARGE;
 import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.USER_NOT_FOUND;
+import static com.github.k1mb1.cinema_java_spring.repositories.DirectDeleteRepository.MAX_IDS_PER_DELETE;
 
 @Service
 @RequiredArgsConstructor
@@ -22,8 +52,25 @@ import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.USER_NOT_
 @FieldDefaults(makeFinal = true)
 public class UserService {
 
+    static final String EXPORT_WATCHED_MOVIES_SQL = """
+            select id, user_id, movie_id, watched_at, created_at, updated_at
+            from watched_movies
+            where user_id = ?
+            order by watched_at desc, id desc""";
+    /**
+     * Rows the driver buffers per round trip while exporting; PostgreSQL only honours it
+     * inside a transaction, which is why the export runs in one.
+     */
+    static final int EXPORT_FETCH_SIZE = 500;
+
     UserRepository userRepository;
+    WatchedMovieRepository watchedMovieRepository;
     UserMapper userMapper;
+    WatchedMovieMapper watchedMovieMapper;
+    JdbcTemplate jdbcTemplate;
+    MergePatch mergePatch;
+    ObjectMapper objectMapper;
+    SingleFlight<ResourceVersion, UserResponseDto> userReads;
 
     public UserResponseDto createUser(@NonNull UserRequestDto userRequestDto) {
         return userMapper.toDto(
@@ -39,11 +86,121 @@ public class UserService {
         );
     }
 
+    /**
+     * Only the version is looked up for a client that already has it. Concurrent loads of the same
+     * version share one, which runs in a read-only transaction of its own.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Versioned<UserResponseDto> getUserById(@NonNull Integer id, @NonNull Predicate<ResourceVersion> clientHas) {
+        val updatedAt = userRepository.findUpdatedAtById(id)
+                .orElseThrow(() -> new NotFoundException(USER_NOT_FOUND.formatted(id)));
+        val version = ResourceVersion.of(updatedAt, "user", id);
+        return Versioned.resolve(version, clientHas, () -> userReads.load(version, () -> userMapper.toDto(
+                userRepository.findById(id).orElseThrow(() -> new NotFoundException(USER_NOT_FOUND.formatted(id)))
+        )));
+    }
+
+    /**
+     * Users fetched by one query, in the order of {@code ids}.
+     */
+    @Transactional(readOnly = true)
+    public MultiGetResponseDto<UserResponseDto> getUsersByIds(@NonNull List<Integer> ids) {
+        return MultiGet.load(ids, userRepository::findAllById, User::getId, userMapper::toDto);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<UserResponseDto> getAllUsers(String after, Integer limit) {
+        val pageLimit = Keyset.limit(limit);
+        return Keyset.page(
+                userRepository.findByIdGreaterThanOrderByIdAsc(Keyset.decode(after), Keyset.probe(pageLimit)),
+                pageLimit,
+                User::getId,
+                userMapper::toDto
+        );
+    }
+
+    @Transactional(readOnly = true)
+    public Versioned<CursorPageResponseDto<UserResponseDto>> getAllUsers(
+            String after,
+            Integer limit,
+            @NonNull Predicate<ResourceVersion> clientHas
+    ) {
+        val pageLimit = Keyset.limit(limit);
+        val rows = userRepository.findVersionsByIdGreaterThanOrderByIdAsc(Keyset.decode(after), Keyset.probe(pageLimit));
+        return Versioned.resolve(
+                ResourceVersion.ofRows(rows, "users", pageLimit),
+                clientHas,
+                () -> getAllUsers(after, limit)
+        );
+    }
+
+    /**
+     * The user's watch history, most recently watched first.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<WatchHistoryItemDto> getWatchHistory(@NonNull Integer id, String after, Integer limit) {
+        val pageLimit = Keyset.limit(limit);
+        val position = Keyset.decodeTimed(after);
+        val rows = watchedMovieRepository.findHistory(id, position.time(), position.id(), Keyset.probe(pageLimit));
+        // Only an empty page needs to tell a missing user from one who has watched nothing
+        if (rows.isEmpty() && !userRepository.existsById(id)) {
+            throw new NotFoundException(USER_NOT_FOUND.formatted(id));
+        }
+        return Keyset.pageBy(
+                rows,
+                pageLimit,
+                row -> Keyset.encode(row.getWatchedAt(), row.getId()),
+                Function.identity()
+        );
+    }
+
+    /**
+     * Throws {@link NotFoundException} if the user does not exist, e.g. before a response is
+     * committed to a content type that cannot carry the error.
+     */
+    @Transactional(readOnly = true)
+    public void assertUserExists(@NonNull Integer id) {
+        if (!userRepository.existsById(id)) {
+            throw new NotFoundException(USER_NOT_FOUND.formatted(id));
+        }
+    }
+
+    /**
+     * Writes every watched movie of the user to {@code out} as newline-delimited JSON, newest
+     * first, the order of the user's history index.
+     * <p>
+     * Rows are read through a forward-only cursor and written as they arrive, so memory use does
+     * not grow with the size of the history. Writes nothing for a user that does not exist; see
+     * {@link #assertUserExists}.
+     */
     @Transactional(readOnly = true)
-    public List<UserResponseDto> getAllUsers() {
-        return userRepository.findAll().stream()
-                .map(userMapper::toDto)
-                .toList();
+    public void exportWatchedMovies(@NonNull Integer id, @NonNull OutputStream out) throws IOException {
+        val writer = objectMapper.writerFor(WatchedMovieResponseDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (val generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            jdbcTemplate.query(
+                    connection -> {
+                        val statement = connection.prepareStatement(
+                                EXPORT_WATCHED_MOVIES_SQL,
+                                ResultSet.TYPE_FORWARD_ONLY,
+                                ResultSet.CONCUR_READ_ONLY
+                        );
+                        statement.setFetchSize(EXPORT_FETCH_SIZE);
+                        statement.setInt(1, id);
+                        return statement;
+                    },
+                    resultSet -> {
+                        try {
+                            writer.writeValue(generator, watchedMovieMapper.fromRow(resultSet));
+                            generator.writeRaw('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+            );
+        }
     }
 
     public UserResponseDto updateUser(@NonNull Integer id, @NonNull UserRequestDto userRequestDto) {
@@ -58,10 +215,36 @@ public class UserService {
         return userMapper.toDto(userRepository.save(updatedUser));
     }
 
+    /**
+     * Applies a JSON Merge Patch; nothing is written when it changes nothing.
+     */
+    public UserResponseDto patchUser(@NonNull Integer id, @NonNull JsonNode patch) {
+        val user = userRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException(USER_NOT_FOUND.formatted(id)));
+        val current = userMapper.toRequestDto(user);
+        val patched = mergePatch.apply(patch, current);
+        if (patched.equals(current)) {
+            return userMapper.toDto(user);
+        }
+
+        userMapper.updateEntity(patched, user);
+        return userMapper.toDto(userRepository.saveAndFlush(user));
+    }
+
     public void deleteUser(@NonNull Integer id) {
-        if (!userRepository.existsById(id)) {
+        if (userRepository.deleteRowById(id) == 0) {
             throw new NotFoundException(USER_NOT_FOUND.formatted(id));
         }
-        userRepository.deleteById(id);
+    }
+
+    public BulkDeleteResponseDto deleteUsers(@NonNull Set<Integer> ids) {
+        if (ids.size() > MAX_IDS_PER_DELETE) {
+            throw new BadRequestException(BULK_TOO_LARGE.formatted(MAX_IDS_PER_DELETE));
+        }
+        if (ids.isEmpty()) {
+            return new BulkDeleteResponseDto(0);
+        }
+        val deleted = userRepository.deleteRowsByIdIn(ids);
+        return new BulkDeleteResponseDto(deleted);
     }
 }
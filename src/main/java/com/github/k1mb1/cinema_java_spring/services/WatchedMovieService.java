@@ -1,20 +1,48 @@
 package com.github.k1mb1.cinema_java_spring.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.k1mb1.cinema_java_spring.coalescing.SingleFlight;
+import com.github.k1mb1.cinema_java_spring.conditional.ResourceVersion;
+import com.github.k1mb1.cinema_java_spring.conditional.Versioned;
+import com.github.k1mb1.cinema_java_spring.dtos.delete.BulkDeleteResponseDto;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
 import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieBatchItemDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMoviePatchDto;
 import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.entities.WatchedMovie;
 import com.github.k1mb1.cinema_java_spring.mappers.WatchedMovieMapper;
-import com.github.k1mb1.cinema_java_spring.repositories.MovieRepository;
-import com.github.k1mb1.cinema_java_spring.repositories.UserRepository;
+import com.github.k1mb1.cinema_java_spring.pagination.Keyset;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.repositories.WatchedMovieRepository;
+import com.github.k1mb1.cinema_java_spring.trending.TrendingMovies;
+import jakarta.persistence.EntityManager;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
 import lombok.val;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.BATCH_ITEM_INVALID;
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.BULK_TOO_LARGE;
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.MOVIES_NOT_FOUND;
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.USERS_NOT_FOUND;
+import static com.github.k1mb1.cinema_java_spring.repositories.DirectDeleteRepository.MAX_IDS_PER_DELETE;
 
 @Service
 @RequiredArgsConstructor
@@ -22,24 +50,142 @@ import java.util.List;
 @FieldDefaults(makeFinal = true)
 public class WatchedMovieService {
 
+    public static final int BATCH_MAX_SIZE = 1_000;
+
+    static final String USER_FOREIGN_KEY = "watched_movies_user_id_fkey";
+    static final String MOVIE_FOREIGN_KEY = "watched_movies_movie_id_fkey";
+
+    /**
+     * Ids from both arrays that have no matching row, found in a single round trip.
+     */
+    static final String MISSING_REFERENCES_SQL = """
+            select array(select unnest(?::int[]) except select id from users order by 1) as missing_users,
+                   array(select unnest(?::int[]) except select id from movies order by 1) as missing_movies""";
+    /**
+     * Takes the same per-pair lock as the {@code watched_movies_check_unique} trigger, in a fixed order so
+     * that concurrent batches cannot deadlock; {@link #UPSERT_SQL} then runs without racing other writers.
+     */
+    static final String LOCK_PAIRS_SQL = """
+            select pg_advisory_xact_lock(pair.user_id, pair.movie_id)
+            from unnest(?::int[], ?::int[]) as pair(user_id, movie_id)
+            order by pair.user_id, pair.movie_id""";
+    /**
+     * {@code watched_movies} is partitioned and has no unique index to use with {@code on conflict},
+     * so existing pairs are updated and the rest inserted. A re-watch moves {@code watched_at} forward
+     * only, so replaying a batch changes nothing. {@code inserted} tells new rows from re-watches.
+     */
+    static final String UPSERT_SQL = """
+            with item as (
+                select item.user_id, item.movie_id, coalesce(item.watched_at, now()) as watched_at
+                from unnest(?::int[], ?::int[], ?::timestamp[]) as item(user_id, movie_id, watched_at)
+            ), updated as (
+                update watched_movies
+                set watched_at = greatest(watched_movies.watched_at, item.watched_at),
+                    updated_at = now()
+                from item
+                where watched_movies.user_id = item.user_id and watched_movies.movie_id = item.movie_id
+                returning watched_movies.id, watched_movies.user_id, watched_movies.movie_id,
+                          watched_movies.watched_at, watched_movies.created_at, watched_movies.updated_at
+            ), inserted as (
+                insert into watched_movies (user_id, movie_id, watched_at)
+                select item.user_id, item.movie_id, item.watched_at
+                from item
+                where not exists (
+                    select 1 from updated where updated.user_id = item.user_id and updated.movie_id = item.movie_id
+                )
+                returning id, user_id, movie_id, watched_at, created_at, updated_at
+            )
+            select *, false as inserted from updated
+            union all
+            select *, true as inserted from inserted""";
+
     WatchedMovieRepository watchedMovieRepository;
-    UserRepository userRepository;
-    MovieRepository movieRepository;
     WatchedMovieMapper watchedMovieMapper;
+    JdbcTemplate jdbcTemplate;
+    EntityManager entityManager;
+    TrendingMovies trendingMovies;
+    MergePatch mergePatch;
+    SingleFlight<ResourceVersion, WatchedMovieResponseDto> watchedMovieReads;
 
+    /**
+     * Inserts the watch with id-only references to the user and movie; a missing one surfaces as a
+     * foreign key violation and is reported as not found. Counted towards trending once committed.
+     */
     public WatchedMovieResponseDto markMovieAsWatched(@NonNull WatchedMovieRequestDto watchedMovieRequestDto) {
-        // Verify that user exists
-        val user = userRepository.findById(watchedMovieRequestDto.getUserId())
-                .orElseThrow(() -> new NotFoundException("User not found with ID: " + watchedMovieRequestDto.getUserId()));
+        val watchedMovie = watchedMovieMapper.toEntity(watchedMovieRequestDto);
+        final WatchedMovie saved;
+        try {
+            saved = watchedMovieRepository.save(watchedMovie);
+        } catch (DataIntegrityViolationException e) {
+            throw notFoundReference(e, watchedMovieRequestDto);
+        }
+        trendingMovies.recordAfterCommit(saved.getMovie().getId(), saved.getWatchedAt());
+        return watchedMovieMapper.toDto(saved);
+    }
 
-        // Verify that movie exists
-        val movie = movieRepository.findById(watchedMovieRequestDto.getMovieId())
-                .orElseThrow(() -> new NotFoundException("Movie not found with ID: " + watchedMovieRequestDto.getMovieId()));
+    /**
+     * Records a burst of watch events with one multi-row upsert.
+     * <p>
+     * All referenced users and movies are checked with one query up front; if any is missing nothing
+     * is written. Repeated (user, movie) pairs are collapsed to their latest {@code watchedAt}.
+     * <p>
+     * Newly inserted rows are counted towards trending once committed. Re-watches are not: the row
+     * only moves its {@code watchedAt} forward, and the trending rebuild counts one watch per row.
+     *
+     * @return the resulting rows, one per distinct (user, movie) pair
+     */
+    public List<WatchedMovieResponseDto> markMoviesAsWatched(@NonNull List<WatchedMovieBatchItemDto> items) {
+        if (items.size() > BATCH_MAX_SIZE) {
+            throw new BadRequestException(BULK_TOO_LARGE.formatted(BATCH_MAX_SIZE));
+        }
+        val latest = new LinkedHashMap<List<Integer>, WatchedMovieBatchItemDto>();
+        for (int index = 0; index < items.size(); index++) {
+            val item = items.get(index);
+            if (item == null || item.getUserId() == null || item.getMovieId() == null) {
+                throw new BadRequestException(BATCH_ITEM_INVALID.formatted(index));
+            }
+            latest.merge(List.of(item.getUserId(), item.getMovieId()), item, WatchedMovieService::later);
+        }
+        if (latest.isEmpty()) {
+            return List.of();
+        }
 
-        val watchedMovie = watchedMovieMapper.toEntity(watchedMovieRequestDto);
-        val savedWatchedMovie = watchedMovieRepository.save(watchedMovie);
+        val userIds = latest.values().stream().map(WatchedMovieBatchItemDto::getUserId).toArray(Integer[]::new);
+        val movieIds = latest.values().stream().map(WatchedMovieBatchItemDto::getMovieId).toArray(Integer[]::new);
+        val watchedAts = latest.values().stream()
+                .map(item -> item.getWatchedAt() != null ? Timestamp.valueOf(item.getWatchedAt()) : null)
+                .toArray(Timestamp[]::new);
 
-        return watchedMovieMapper.toDto(savedWatchedMovie);
+        // Plain JDBC below; make rows written through JPA earlier in this transaction visible to it
+        entityManager.flush();
+        checkReferences(userIds, movieIds);
+        jdbcTemplate.query(
+                connection -> {
+                    val statement = connection.prepareStatement(LOCK_PAIRS_SQL);
+                    statement.setArray(1, connection.createArrayOf("integer", userIds));
+                    statement.setArray(2, connection.createArrayOf("integer", movieIds));
+                    return statement;
+                },
+                resultSet -> {
+                }
+        );
+
+        return jdbcTemplate.query(
+                connection -> {
+                    val statement = connection.prepareStatement(UPSERT_SQL);
+                    statement.setArray(1, connection.createArrayOf("integer", userIds));
+                    statement.setArray(2, connection.createArrayOf("integer", movieIds));
+                    statement.setArray(3, connection.createArrayOf("timestamp", watchedAts));
+                    return statement;
+                },
+                (resultSet, rowNum) -> {
+                    val row = watchedMovieMapper.fromRow(resultSet);
+                    if (resultSet.getBoolean("inserted")) {
+                        trendingMovies.recordAfterCommit(row.getMovieId(), row.getWatchedAt());
+                    }
+                    return row;
+                }
+        );
     }
 
     @Transactional(readOnly = true)
@@ -50,17 +196,128 @@ public class WatchedMovieService {
         );
     }
 
+    /**
+     * Only the version is looked up for a client that already has it. Concurrent loads of the same
+     * version share one, which runs in a read-only transaction of its own.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Versioned<WatchedMovieResponseDto> getWatchedMovieById(@NonNull Integer id, @NonNull Predicate<ResourceVersion> clientHas) {
+        val updatedAt = watchedMovieRepository.findUpdatedAtById(id)
+                .orElseThrow(() -> new NotFoundException("Watched movie record not found with ID: " + id));
+        val version = ResourceVersion.of(updatedAt, "watchedMovie", id);
+        return Versioned.resolve(version, clientHas, () -> watchedMovieReads.load(version, () -> watchedMovieMapper.toDto(
+                watchedMovieRepository.findById(id)
+                        .orElseThrow(() -> new NotFoundException("Watched movie record not found with ID: " + id))
+        )));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<WatchedMovieResponseDto> getAllWatchedMovies(String after, Integer limit) {
+        val pageLimit = Keyset.limit(limit);
+        return Keyset.page(
+                watchedMovieRepository.findByIdGreaterThanOrderByIdAsc(Keyset.decode(after), Keyset.probe(pageLimit)),
+                pageLimit,
+                WatchedMovie::getId,
+                watchedMovieMapper::toDto
+        );
+    }
+
     @Transactional(readOnly = true)
-    public List<WatchedMovieResponseDto> getAllWatchedMovies() {
-        return watchedMovieRepository.findAll().stream()
-                .map(watchedMovieMapper::toDto)
-                .toList();
+    public Versioned<CursorPageResponseDto<WatchedMovieResponseDto>> getAllWatchedMovies(
+            String after,
+            Integer limit,
+            @NonNull Predicate<ResourceVersion> clientHas
+    ) {
+        val pageLimit = Keyset.limit(limit);
+        val rows = watchedMovieRepository.findVersionsByIdGreaterThanOrderByIdAsc(Keyset.decode(after), Keyset.probe(pageLimit));
+        return Versioned.resolve(
+                ResourceVersion.ofRows(rows, "watchedMovies", pageLimit),
+                clientHas,
+                () -> getAllWatchedMovies(after, limit)
+        );
+    }
+
+    /**
+     * Applies a JSON Merge Patch to the editable part of the watch, see {@link WatchedMoviePatchDto}.
+     */
+    public WatchedMovieResponseDto patchWatchedMovie(@NonNull Integer id, @NonNull JsonNode patch) {
+        val watchedMovie = watchedMovieRepository.findById(id)
+                .orElseThrow(() -> new NotFoundException("Watched movie record not found with ID: " + id));
+        val current = watchedMovieMapper.toPatchDto(watchedMovie);
+        val patched = mergePatch.apply(patch, current);
+        if (patched.equals(current)) {
+            return watchedMovieMapper.toDto(watchedMovie);
+        }
+
+        watchedMovieMapper.updateEntity(patched, watchedMovie);
+        return watchedMovieMapper.toDto(watchedMovieRepository.saveAndFlush(watchedMovie));
     }
 
     public void deleteWatchedMovie(@NonNull Integer id) {
-        if (!watchedMovieRepository.existsById(id)) {
+        if (watchedMovieRepository.deleteRowById(id) == 0) {
             throw new NotFoundException("Watched movie record not found with ID: " + id);
         }
-        watchedMovieRepository.deleteById(id);
+    }
+
+    public BulkDeleteResponseDto deleteWatchedMovies(@NonNull Set<Integer> ids) {
+        if (ids.size() > MAX_IDS_PER_DELETE) {
+            throw new BadRequestException(BULK_TOO_LARGE.formatted(MAX_IDS_PER_DELETE));
+        }
+        if (ids.isEmpty()) {
+            return new BulkDeleteResponseDto(0);
+        }
+        val deleted = watchedMovieRepository.deleteRowsByIdIn(ids);
+        return new BulkDeleteResponseDto(deleted);
+    }
+
+    void checkReferences(Integer[] userIds, Integer[] movieIds) {
+        val missing = jdbcTemplate.query(
+                connection -> {
+                    val statement = connection.prepareStatement(MISSING_REFERENCES_SQL);
+                    statement.setArray(1, connection.createArrayOf("integer", userIds));
+                    statement.setArray(2, connection.createArrayOf("integer", movieIds));
+                    return statement;
+                },
+                (resultSet, rowNum) -> List.of(
+                        (Integer[]) resultSet.getArray("missing_users").getArray(),
+                        (Integer[]) resultSet.getArray("missing_movies").getArray()
+                )
+        ).getFirst();
+
+        val errors = new ArrayList<String>(2);
+        if (missing.get(0).length > 0) {
+            errors.add(USERS_NOT_FOUND.formatted(Arrays.toString(missing.get(0))));
+        }
+        if (missing.get(1).length > 0) {
+            errors.add(MOVIES_NOT_FOUND.formatted(Arrays.toString(missing.get(1))));
+        }
+        if (!errors.isEmpty()) {
+            throw new NotFoundException(String.join("; ", errors));
+        }
+    }
+
+    static RuntimeException notFoundReference(DataIntegrityViolationException e, WatchedMovieRequestDto request) {
+        if (e.getCause() instanceof ConstraintViolationException violation) {
+            if (USER_FOREIGN_KEY.equals(violation.getConstraintName())) {
+                return new NotFoundException("User not found with ID: " + request.getUserId());
+            }
+            if (MOVIE_FOREIGN_KEY.equals(violation.getConstraintName())) {
+                return new NotFoundException("Movie not found with ID: " + request.getMovieId());
+            }
+        }
+        return e;
+    }
+
+    /**
+     * A missing {@code watchedAt} is written as the time of the request, so it is the latest one.
+     */
+    static WatchedMovieBatchItemDto later(WatchedMovieBatchItemDto current, WatchedMovieBatchItemDto next) {
+        if (current.getWatchedAt() == null) {
+            return current;
+        }
+        if (next.getWatchedAt() == null) {
+            return next;
+        }
+        return next.getWatchedAt().isAfter(current.getWatchedAt()) ? next : current;
     }
 }
@@ -0,0 +1,22 @@
+package com.github.k1mb1.cinema_java_spring.snapshots;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.k1mb1.cinema_java_spring.dtos.country.CountryResponseDto;
+import com.github.k1mb1.cinema_java_spring.entities.Country;
+import com.github.k1mb1.cinema_java_spring.mappers.CountryMapper;
+import com.github.k1mb1.cinema_java_spring.repositories.CountryRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Component
+public class CountrySnapshotCache extends ReferenceSnapshotCache<Country, CountryResponseDto> {
+
+    public CountrySnapshotCache(
+            CountryRepository countryRepository,
+            CountryMapper countryMapper,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager
+    ) {
+        super(countryRepository, countryMapper::toDto, countryMapper::toReference, CountryResponseDto::getId, objectMapper, transactionManager);
+    }
+}
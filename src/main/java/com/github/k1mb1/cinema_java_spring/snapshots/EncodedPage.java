@@ -0,0 +1,73 @@
+package com.github.k1mb1.cinema_java_spring.snapshots;
+
+import com.github.k1mb1.cinema_java_spring.conditional.ConditionalGet;
+import lombok.val;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import static org.springframework.http.HttpStatus.OK;
+
+/**
+ * A JSON response body serialized once, in plain and gzip form.
+ * <p>
+ * Gzip is sent when {@code Accept-Encoding} allows it, honouring {@code q=0}. The two encodings
+ * carry different strong ETags; Spring answers a matching {@code If-None-Match}
+ * with 304 on its own, as the body is already in memory.
+ *
+ * @param etag quoted hash of {@code json}
+ */
+public record EncodedPage(byte[] json, byte[] gzip, String etag) {
+
+    public ResponseEntity<byte[]> toResponse(String acceptEncoding) {
+        val response = ResponseEntity.status(OK)
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(ConditionalGet.CACHE_CONTROL);
+        if (acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .eTag(etag.substring(0, etag.length() - 1) + "-gzip\"")
+                    .body(gzip);
+        }
+        return response.eTag(etag).body(json);
+    }
+
+    /**
+     * Whether {@code Accept-Encoding} allows gzip: listed, or covered by {@code *}, without {@code q=0}.
+     * An explicit {@code gzip} entry takes precedence over {@code *}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (val entry : acceptEncoding.split(",")) {
+            val parts = entry.split(";");
+            val coding = parts[0].trim();
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                return qualityOf(parts) > 0;
+            }
+            if (coding.equals("*")) {
+                wildcard = qualityOf(parts) > 0;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    /**
+     * The {@code q} parameter of a split {@code Accept-Encoding} entry, 1 if absent, 0 if malformed.
+     */
+    static double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            val parameter = parts[i].trim();
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
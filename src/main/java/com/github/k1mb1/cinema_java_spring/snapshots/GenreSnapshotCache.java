@@ -0,0 +1,22 @@
+package com.github.k1mb1.cinema_java_spring.snapshots;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreResponseDto;
+import com.github.k1mb1.cinema_java_spring.entities.Genre;
+import com.github.k1mb1.cinema_java_spring.mappers.GenreMapper;
+import com.github.k1mb1.cinema_java_spring.repositories.GenreRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Component
+public class GenreSnapshotCache extends ReferenceSnapshotCache<Genre, GenreResponseDto> {
+
+    public GenreSnapshotCache(
+            GenreRepository genreRepository,
+            GenreMapper genreMapper,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager
+    ) {
+        super(genreRepository, genreMapper::toDto, genreMapper::toReference, GenreResponseDto::getId, objectMapper, transactionManager);
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.k1mb1.cinema_java_spring.snapshots;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.pagination.Keyset;
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable copy of a small reference table, sorted by id.
+ * <p>
+ * A new instance is built on every change and swapped in as a whole, so readers never
+ * see a half-updated table and never lock.
+ *
+ * @param <D> response dto type of the table rows
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(makeFinal = true)
+public class ReferenceSnapshot<D> {
+
+    List<D> items;
+    int[] ids;
+    Map<Integer, D> byId;
+    Function<D, Integer> idExtractor;
+    EncodedPage firstPage;
+    String version;
+
+    public static <D> ReferenceSnapshot<D> of(
+            @NonNull List<D> items,
+            @NonNull Function<D, Integer> idExtractor,
+            @NonNull ObjectMapper objectMapper
+    ) {
+        val sorted = items.stream()
+                .sorted(Comparator.comparing(idExtractor))
+                .toList();
+        val ids = sorted.stream().mapToInt(idExtractor::apply).toArray();
+        val byId = new HashMap<Integer, D>(sorted.size() * 2);
+        sorted.forEach(item -> byId.put(idExtractor.apply(item), item));
+
+        val firstPage = Keyset.page(sorted, Keyset.DEFAULT_LIMIT, idExtractor, Function.identity());
+        return new ReferenceSnapshot<>(
+                sorted,
+                ids,
+                Map.copyOf(byId),
+                idExtractor,
+                encode(firstPage, objectMapper),
+                DigestUtils.md5DigestAsHex(serialize(sorted, objectMapper))
+        );
+    }
+
+    public Optional<D> find(@NonNull Integer id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public List<D> findAll(@NonNull Collection<Integer> ids) {
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Same contract as the repository keyset queries, answered with a binary search.
+     */
+    public CursorPageResponseDto<D> page(String after, Integer limit) {
+        val pageLimit = Keyset.limit(limit);
+        val position = Arrays.binarySearch(ids, Keyset.decode(after));
+        val from = position >= 0 ? position + 1 : -position - 1;
+        val to = Math.min(items.size(), from + pageLimit + 1);
+        return Keyset.page(items.subList(from, to), pageLimit, idExtractor, Function.identity());
+    }
+
+    /**
+     * The default first page ({@code GET} without {@code after}/{@code limit}), already serialized.
+     */
+    public EncodedPage firstPage() {
+        return firstPage;
+    }
+
+    /**
+     * Hash of the whole table content; changes whenever any row does, so it can version list responses.
+     */
+    public String version() {
+        return version;
+    }
+
+    static EncodedPage encode(CursorPageResponseDto<?> page, ObjectMapper objectMapper) {
+        val json = serialize(page, objectMapper);
+        try {
+            val gzipped = new ByteArrayOutputStream(json.length / 2 + 32);
+            try (val gzip = new GZIPOutputStream(gzipped)) {
+                gzip.write(json);
+            }
+            return new EncodedPage(json, gzipped.toByteArray(), '"' + DigestUtils.md5DigestAsHex(json) + '"');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] serialize(Object value, ObjectMapper objectMapper) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize reference snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.k1mb1.cinema_java_spring.snapshots;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import lombok.val;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Copy-on-write, in-memory copy of a small reference table.
+ * <p>
+ * Reads are served from the current {@link ReferenceSnapshot} without touching the database.
+ * Writers call {@link #reloadAfterCommit()}; the snapshot is rebuilt once their transaction commits.
+ * Until then the writing transaction itself reads from the database, so it still sees its own changes
+ * while other threads keep reading the last committed snapshot.
+ *
+ * @param <E> entity type
+ * @param <D> response dto type
+ */
+public abstract class ReferenceSnapshotCache<E, D> {
+
+    final JpaRepository<E, Integer> repository;
+    final Function<E, D> toDto;
+    final Function<D, E> toReference;
+    final Function<D, Integer> idExtractor;
+    final ObjectMapper objectMapper;
+    final TransactionTemplate reloadTransaction;
+    final AtomicReference<ReferenceSnapshot<D>> current = new AtomicReference<>();
+    // Not synchronized: a virtual thread would stay pinned to its carrier for the whole reload query
+    final ReentrantLock reloadLock = new ReentrantLock();
+
+    protected ReferenceSnapshotCache(
+            JpaRepository<E, Integer> repository,
+            Function<E, D> toDto,
+            Function<D, E> toReference,
+            Function<D, Integer> idExtractor,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.repository = repository;
+        this.toDto = toDto;
+        this.toReference = toReference;
+        this.idExtractor = idExtractor;
+        this.objectMapper = objectMapper;
+        this.reloadTransaction = new TransactionTemplate(transactionManager);
+        this.reloadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reloadTransaction.setReadOnly(true);
+    }
+
+    /**
+     * @return the snapshot to read from in the calling thread
+     */
+    public ReferenceSnapshot<D> read() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return ReferenceSnapshot.of(load(), idExtractor, objectMapper);
+        }
+        val snapshot = current.get();
+        return snapshot != null ? snapshot : reload();
+    }
+
+    public Optional<D> findById(@NonNull Integer id) {
+        return read().find(id)
+                // Another instance may have created the row since our last refresh
+                .or(() -> repository.findById(id).map(toDto));
+    }
+
+    /**
+     * Resolves ids to detached entities usable as association targets, without loading them.
+     * Unknown ids are skipped.
+     */
+    public Set<E> resolve(Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new HashSet<>();
+        }
+        val found = read().findAll(ids);
+        val resolved = new HashSet<E>(ids.size() * 2);
+        found.forEach(dto -> resolved.add(toReference.apply(dto)));
+        if (found.size() < new HashSet<>(ids).size()) {
+            val known = found.stream().map(idExtractor).toList();
+            val missing = ids.stream().filter(id -> !known.contains(id)).toList();
+            resolved.addAll(repository.findAllById(missing));
+        }
+        return resolved;
+    }
+
+    public void reloadAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reload();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReferenceSnapshotCache.this);
+                if (status == STATUS_COMMITTED) {
+                    reload();
+                }
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    /**
+     * Picks up changes made through other application instances.
+     */
+    @Scheduled(
+            initialDelayString = "${cinema.reference-data.refresh-interval:PT1M}",
+            fixedDelayString = "${cinema.reference-data.refresh-interval:PT1M}"
+    )
+    public void refresh() {
+        reload();
+    }
+
+    public ReferenceSnapshot<D> reload() {
+        reloadLock.lock();
+        try {
+            val snapshot = ReferenceSnapshot.of(
+                    Objects.requireNonNull(reloadTransaction.execute(status -> load())),
+                    idExtractor,
+                    objectMapper
+            );
+            current.set(snapshot);
+            return snapshot;
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    List<D> load() {
+        return repository.findAll(Sort.by("id")).stream()
+                .map(toDto)
+                .toList();
+    }
+}
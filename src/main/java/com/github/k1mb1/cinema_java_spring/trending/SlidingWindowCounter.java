@@ -0,0 +1,140 @@
+package com.github.k1mb1.cinema_java_spring.trending;
+
+import com.github.k1mb1.cinema_java_spring.dtos.movie.TrendingMovieDto;
+import lombok.val;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Watch counts per movie over a sliding time window, kept as a ring of fixed-width buckets.
+ * <p>
+ * Every bucket and the running window total hold a {@link LongAdder} per movie, so concurrent
+ * watches of the same movie do not contend on one counter. When the clock enters a new bucket the
+ * oldest one is subtracted from the totals and reused, so reads only walk the totals.
+ * Adds share a read lock; only that rotation takes the write lock.
+ */
+public class SlidingWindowCounter {
+
+    /**
+     * Rough retained size of one per-movie counter (map node, boxed key, adder) on a 64-bit JVM
+     * with compressed references.
+     */
+    static final long ENTRY_BYTES = 96;
+
+    static final Comparator<TrendingMovieDto> BY_WATCHES = Comparator
+            .comparingLong(TrendingMovieDto::getWatches)
+            .thenComparing(TrendingMovieDto::getMovieId, Comparator.reverseOrder());
+
+    final long bucketMillis;
+    final Bucket[] ring;
+    final Map<Integer, LongAdder> totals = new ConcurrentHashMap<>();
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Number of the newest bucket, counted in bucket widths since the epoch
+    volatile long head;
+
+    public SlidingWindowCounter(Duration bucket, int buckets, long nowMillis) {
+        this.bucketMillis = bucket.toMillis();
+        this.ring = new Bucket[buckets];
+        this.head = Math.floorDiv(nowMillis, bucketMillis);
+        for (long index = head - buckets + 1; index <= head; index++) {
+            ring[slot(index)] = new Bucket(index);
+        }
+    }
+
+    /**
+     * Counts {@code watches} for the movie at {@code atMillis}; ignored when that is already outside
+     * the window. Times ahead of {@code nowMillis} count as now.
+     */
+    public void add(int movieId, long atMillis, long watches, long nowMillis) {
+        advance(nowMillis);
+        val index = Math.floorDiv(Math.min(atMillis, nowMillis), bucketMillis);
+        lock.readLock().lock();
+        try {
+            val bucket = ring[slot(index)];
+            if (bucket.index() != index) {
+                return;
+            }
+            bucket.counts().computeIfAbsent(movieId, id -> new LongAdder()).add(watches);
+            totals.computeIfAbsent(movieId, id -> new LongAdder()).add(watches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the {@code limit} most watched movies in the window, most watched first
+     */
+    public List<TrendingMovieDto> top(int limit, long nowMillis) {
+        advance(nowMillis);
+        val heap = new PriorityQueue<TrendingMovieDto>(limit + 1, BY_WATCHES);
+        totals.forEach((movieId, adder) -> {
+            val watches = adder.sum();
+            if (watches <= 0) {
+                return;
+            }
+            if (heap.size() < limit) {
+                heap.add(new TrendingMovieDto(movieId, watches));
+            } else if (watches > heap.peek().getWatches()
+                    || watches == heap.peek().getWatches() && movieId < heap.peek().getMovieId()) {
+                heap.poll();
+                heap.add(new TrendingMovieDto(movieId, watches));
+            }
+        });
+        return heap.stream().sorted(BY_WATCHES.reversed()).toList();
+    }
+
+    /**
+     * @return number of per-movie counters held, in buckets and totals
+     */
+    public long entries() {
+        long entries = totals.size();
+        for (val bucket : ring) {
+            entries += bucket.counts().size();
+        }
+        return entries;
+    }
+
+    public long estimatedBytes() {
+        return entries() * ENTRY_BYTES;
+    }
+
+    void advance(long nowMillis) {
+        val now = Math.floorDiv(nowMillis, bucketMillis);
+        if (now <= head) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // Only buckets still inside the ring can hold counts; skip the rest of a long idle gap
+            for (long index = Math.max(head + 1, now - ring.length + 1); index <= now; index++) {
+                val expired = ring[slot(index)];
+                expired.counts().forEach((movieId, adder) -> totals.computeIfPresent(movieId, (id, total) -> {
+                    total.add(-adder.sum());
+                    return total.sum() > 0 ? total : null;
+                }));
+                ring[slot(index)] = new Bucket(index);
+            }
+            head = Math.max(head, now);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int slot(long index) {
+        return (int) Math.floorMod(index, (long) ring.length);
+    }
+
+    record Bucket(long index, Map<Integer, LongAdder> counts) {
+
+        Bucket(long index) {
+            this(index, new ConcurrentHashMap<>());
+        }
+    }
+}
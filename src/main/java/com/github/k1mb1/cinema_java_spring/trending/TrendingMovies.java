@@ -0,0 +1,146 @@
+package com.github.k1mb1.cinema_java_spring.trending;
+
+import com.github.k1mb1.cinema_java_spring.dtos.movie.TrendingMovieDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import lombok.experimental.FieldDefaults;
+import lombok.val;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Most watched movies over the {@link TrendingWindow}s, held in memory and fed by every recorded watch.
+ * <p>
+ * Reads never touch the database. The counters are rebuilt from {@code watched_movies} on startup,
+ * so they survive restarts; watches recorded by other instances are only picked up by that rebuild.
+ */
+@Component
+@FieldDefaults(makeFinal = true)
+public class TrendingMovies {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * Pre-aggregated to the width of the narrowest bucket, so the rebuild reads one row per movie and minute.
+     */
+    static final String REBUILD_SQL = """
+            select movie_id, date_bin('1 minute', watched_at, timestamptz 'epoch') as minute, count(*) as watches
+            from watched_movies
+            where watched_at > ?
+            group by movie_id, minute""";
+
+    JdbcTemplate jdbcTemplate;
+    Clock clock;
+    Timer updateTimer;
+    AtomicReference<Map<TrendingWindow, SlidingWindowCounter>> counters = new AtomicReference<>();
+
+    @Autowired
+    public TrendingMovies(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this(jdbcTemplate, meterRegistry, Clock.systemUTC());
+    }
+
+    TrendingMovies(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.counters.set(emptyCounters());
+        this.updateTimer = Timer.builder("cinema.trending.update")
+                .description("Time to count one watch in every trending window")
+                .register(meterRegistry);
+        for (val window : TrendingWindow.values()) {
+            Gauge.builder("cinema.trending.entries", counters, current -> current.get().get(window).entries())
+                    .description("Per-movie counters held for the trending window")
+                    .tag("window", window.getParam())
+                    .register(meterRegistry);
+            Gauge.builder("cinema.trending.memory", counters, current -> current.get().get(window).estimatedBytes())
+                    .description("Estimated heap used by the trending window counters")
+                    .tag("window", window.getParam())
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+        }
+    }
+
+    public List<TrendingMovieDto> top(@NonNull TrendingWindow window, Integer limit) {
+        val topLimit = limit == null ? DEFAULT_LIMIT : Math.clamp(limit, 1, MAX_LIMIT);
+        return counters.get().get(window).top(topLimit, clock.millis());
+    }
+
+    /**
+     * Counts the watch once the current transaction commits, or right away outside of one.
+     */
+    public void recordAfterCommit(@NonNull Integer movieId, @NonNull LocalDateTime watchedAt) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(movieId, watchedAt);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(movieId, watchedAt);
+            }
+        });
+    }
+
+    public void record(@NonNull Integer movieId, @NonNull LocalDateTime watchedAt) {
+        // Hibernate maps LocalDateTime to timestamptz in the JVM time zone
+        val atMillis = watchedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        updateTimer.record(() -> add(counters.get(), movieId, atMillis, 1));
+    }
+
+    /**
+     * Replaces the counters with ones read from {@code watched_movies}. Watches committed while the
+     * query runs may be missed or counted twice; the skew is at most a few watches.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        val rebuilt = emptyCounters();
+        val longest = Arrays.stream(TrendingWindow.values())
+                .map(TrendingWindow::getLength)
+                .max(Comparable::compareTo)
+                .orElseThrow();
+        jdbcTemplate.query(
+                REBUILD_SQL,
+                resultSet -> {
+                    add(
+                            rebuilt,
+                            resultSet.getInt("movie_id"),
+                            resultSet.getTimestamp("minute").getTime(),
+                            resultSet.getLong("watches")
+                    );
+                },
+                Timestamp.from(clock.instant().minus(longest))
+        );
+        counters.set(rebuilt);
+    }
+
+    void add(Map<TrendingWindow, SlidingWindowCounter> target, int movieId, long atMillis, long watches) {
+        val now = clock.millis();
+        target.values().forEach(counter -> counter.add(movieId, atMillis, watches, now));
+    }
+
+    Map<TrendingWindow, SlidingWindowCounter> emptyCounters() {
+        val now = clock.millis();
+        val empty = new EnumMap<TrendingWindow, SlidingWindowCounter>(TrendingWindow.class);
+        for (val window : TrendingWindow.values()) {
+            empty.put(window, new SlidingWindowCounter(window.getBucket(), window.buckets(), now));
+        }
+        return empty;
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.k1mb1.cinema_java_spring.trending;
+
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import static com.github.k1mb1.cinema_java_spring.errors.ErrorMessages.TRENDING_WINDOW_INVALID;
+
+/**
+ * Windows served by {@code GET /api/movies/trending}. The window slides in steps of one bucket.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+@FieldDefaults(makeFinal = true)
+public enum TrendingWindow {
+
+    HOUR("1h", Duration.ofHours(1), Duration.ofMinutes(1)),
+    DAY("24h", Duration.ofDays(1), Duration.ofMinutes(10)),
+    WEEK("7d", Duration.ofDays(7), Duration.ofHours(1));
+
+    String param;
+    Duration length;
+    Duration bucket;
+
+    public int buckets() {
+        return (int) length.dividedBy(bucket);
+    }
+
+    public static TrendingWindow fromParam(@NonNull String param) {
+        return Arrays.stream(values())
+                .filter(window -> window.param.equals(param))
+                .findFirst()
+                .orElseThrow(() -> new BadRequestException(TRENDING_WINDOW_INVALID.formatted(
+                        param, Arrays.stream(values()).map(TrendingWindow::getParam).toList()
+                )));
+    }
+}
@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset author:00011_alter_movies_id_pooled_sequence
+-- Hibernate allocates movie ids from this sequence in blocks of 50 so inserts can be JDBC-batched
+ALTER SEQUENCE movies_id_seq INCREMENT BY 50;
+--rollback ALTER SEQUENCE movies_id_seq INCREMENT BY 1;
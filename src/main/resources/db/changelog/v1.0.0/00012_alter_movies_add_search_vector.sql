@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset author:00012_alter_movies_add_search_vector
+-- Full-text search document: title matches weigh more than description matches
+ALTER TABLE movies
+    ADD COLUMN search_vector TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(title, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX movies_search_vector_idx ON movies USING GIN (search_vector);
+--rollback DROP INDEX IF EXISTS movies_search_vector_idx; ALTER TABLE movies DROP COLUMN IF EXISTS search_vector;
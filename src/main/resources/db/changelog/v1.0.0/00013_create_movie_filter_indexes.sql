@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset author:00013_create_movie_filter_indexes
+-- The primary keys lead with movie_id; these serve "movies in genre/country X"
+CREATE INDEX movie_genres_genre_id_movie_id_idx ON movie_genres (genre_id, movie_id);
+CREATE INDEX movie_countries_country_id_movie_id_idx ON movie_countries (country_id, movie_id);
+
+-- Range filters on GET /api/movies; combined by the planner with bitmap scans
+CREATE INDEX movies_year_idx ON movies (year);
+CREATE INDEX movies_release_date_idx ON movies (release_date);
+CREATE INDEX movies_duration_minutes_idx ON movies (duration_minutes);
+-- Rating equality with a duration range, the usual "kids, under two hours" query
+CREATE INDEX movies_age_rating_duration_minutes_idx ON movies (age_rating, duration_minutes);
+--rollback DROP INDEX IF EXISTS movies_age_rating_duration_minutes_idx; DROP INDEX IF EXISTS movies_duration_minutes_idx; DROP INDEX IF EXISTS movies_release_date_idx; DROP INDEX IF EXISTS movies_year_idx; DROP INDEX IF EXISTS movie_countries_country_id_movie_id_idx; DROP INDEX IF EXISTS movie_genres_genre_id_movie_id_idx;
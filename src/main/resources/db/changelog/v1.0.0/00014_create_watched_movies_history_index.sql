@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset author:00014_create_watched_movies_history_index
+-- Serves a user's history newest first; id breaks ties between rows watched at the same instant
+CREATE INDEX watched_movies_user_id_watched_at_idx ON watched_movies (user_id, watched_at DESC, id DESC);
+--rollback DROP INDEX IF EXISTS watched_movies_user_id_watched_at_idx;
@@ -0,0 +1,88 @@
+--liquibase formatted sql
+
+--changeset author:00015_partition_watched_movies splitStatements:false
+-- Rebuild watched_movies as a table partitioned by calendar month (UTC) of watched_at.
+-- The application creates the following months ahead of time, see WatchedMoviePartitionManager.
+ALTER TABLE watched_movies RENAME TO watched_movies_unpartitioned;
+ALTER TABLE watched_movies_unpartitioned
+    DROP CONSTRAINT watched_movies_pkey,
+    DROP CONSTRAINT watched_movies_user_id_movie_id_unique,
+    DROP CONSTRAINT watched_movies_user_id_fkey,
+    DROP CONSTRAINT watched_movies_movie_id_fkey;
+DROP INDEX watched_movies_user_id_watched_at_idx;
+
+-- Primary and unique keys of a partitioned table must contain the partition key
+CREATE TABLE watched_movies
+(
+    id         INT                      NOT NULL DEFAULT nextval('watched_movies_id_seq'),
+    user_id    INT                      NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    movie_id   INT                      NOT NULL REFERENCES movies (id) ON DELETE CASCADE,
+    watched_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
+    updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(),
+    PRIMARY KEY (id, watched_at)
+) PARTITION BY RANGE (watched_at);
+ALTER SEQUENCE watched_movies_id_seq OWNED BY watched_movies.id;
+
+-- Catches rows outside every monthly partition, e.g. far-future timestamps
+CREATE TABLE watched_movies_default PARTITION OF watched_movies DEFAULT;
+
+DO
+$$
+    DECLARE
+        -- In UTC before truncating: a month of the session time zone starts on another UTC day
+        first_watch TIMESTAMP := coalesce(
+                (SELECT min(coalesce(watched_at, created_at)) FROM watched_movies_unpartitioned), now()
+            ) AT TIME ZONE 'UTC';
+        month       DATE      := date_trunc('month', first_watch);
+    BEGIN
+        WHILE month <= date_trunc('month', now() AT TIME ZONE 'UTC') + INTERVAL '3 months'
+            LOOP
+                EXECUTE format(
+                        'CREATE TABLE %I PARTITION OF watched_movies FOR VALUES FROM (%L) TO (%L)',
+                        'watched_movies_p' || to_char(month, 'YYYY_MM'),
+                        month || ' 00:00:00+00',
+                        (month + INTERVAL '1 month')::DATE || ' 00:00:00+00'
+                        );
+                month := month + INTERVAL '1 month';
+            END LOOP;
+    END
+$$;
+
+INSERT INTO watched_movies (id, user_id, movie_id, watched_at, created_at, updated_at)
+SELECT id, user_id, movie_id, coalesce(watched_at, created_at, now()), created_at, updated_at
+FROM watched_movies_unpartitioned;
+DROP TABLE watched_movies_unpartitioned;
+
+-- Created on the parent, so every partition gets its own copy
+CREATE INDEX watched_movies_user_id_movie_id_idx ON watched_movies (user_id, movie_id);
+CREATE INDEX watched_movies_user_id_watched_at_idx ON watched_movies (user_id, watched_at DESC, id DESC);
+
+-- A unique constraint could only cover (user_id, movie_id, watched_at), so one watch per user and movie
+-- is enforced here instead. The advisory lock serializes writers of the same pair; id <> NEW.id lets
+-- an update that moves the row to another partition through.
+CREATE FUNCTION watched_movies_check_unique() RETURNS TRIGGER
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    PERFORM pg_advisory_xact_lock(NEW.user_id, NEW.movie_id);
+    IF EXISTS (SELECT 1
+               FROM watched_movies
+               WHERE user_id = NEW.user_id
+                 AND movie_id = NEW.movie_id
+                 AND id <> NEW.id) THEN
+        RAISE unique_violation
+            USING MESSAGE = 'duplicate key value violates unique constraint "watched_movies_user_id_movie_id_unique"',
+                CONSTRAINT = 'watched_movies_user_id_movie_id_unique',
+                DETAIL = format('Key (user_id, movie_id)=(%s, %s) already exists.', NEW.user_id, NEW.movie_id);
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+CREATE TRIGGER watched_movies_check_unique
+    BEFORE INSERT OR UPDATE OF user_id, movie_id
+    ON watched_movies
+    FOR EACH ROW
+EXECUTE FUNCTION watched_movies_check_unique();
+--rollback ALTER TABLE watched_movies RENAME TO watched_movies_partitioned; CREATE TABLE watched_movies (id INT NOT NULL DEFAULT nextval('watched_movies_id_seq') PRIMARY KEY, user_id INT NOT NULL REFERENCES users (id) ON DELETE CASCADE, movie_id INT NOT NULL REFERENCES movies (id) ON DELETE CASCADE, watched_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(), created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(), updated_at TIMESTAMP WITH TIME ZONE DEFAULT NOW(), CONSTRAINT watched_movies_user_id_movie_id_unique UNIQUE (user_id, movie_id)); INSERT INTO watched_movies SELECT id, user_id, movie_id, watched_at, created_at, updated_at FROM watched_movies_partitioned; ALTER SEQUENCE watched_movies_id_seq OWNED BY watched_movies.id; DROP TABLE watched_movies_partitioned; DROP FUNCTION watched_movies_check_unique(); CREATE INDEX watched_movies_user_id_watched_at_idx ON watched_movies (user_id, watched_at DESC, id DESC);
@@ -0,0 +1,125 @@
+package com.github.k1mb1.cinema_java_spring.coalescing;
+
+import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    static final int CALLERS = 8;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SingleFlight<Integer, String> singleFlight =
+            new SingleFlight<>("test", TransactionOperations.withoutTransaction(), meterRegistry);
+
+    @Test
+    void load_WhenCalledConcurrently_ShouldShareOneLoad() throws Exception {
+        val loads = new AtomicInteger();
+        val release = new CountDownLatch(1);
+
+        val results = runConcurrently(() -> singleFlight.load(1, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "movie 1";
+        }), release);
+
+        for (val result : results) {
+            assertThat(result.get()).isEqualTo("movie 1");
+        }
+        assertThat(loads).hasValue(1);
+        assertThat(requests("leader")).isEqualTo(1);
+        assertThat(requests("shared")).isEqualTo(CALLERS - 1);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void load_WhenLoadFails_ShouldRethrowToEveryCaller() throws Exception {
+        val release = new CountDownLatch(1);
+
+        val results = runConcurrently(() -> singleFlight.load(1, () -> {
+            await(release);
+            throw new NotFoundException("Movie not found with ID: 1");
+        }), release);
+
+        for (val result : results) {
+            assertThatThrownBy(result::get)
+                    .isInstanceOf(ExecutionException.class)
+                    .cause()
+                    .isExactlyInstanceOf(NotFoundException.class);
+        }
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void load_AfterLoadCompleted_ShouldLoadAgain() {
+        val loads = new AtomicInteger();
+
+        singleFlight.load(1, () -> "v" + loads.incrementAndGet());
+        val second = singleFlight.load(1, () -> "v" + loads.incrementAndGet());
+
+        assertThat(second).isEqualTo("v2");
+        assertThat(requests("shared")).isZero();
+    }
+
+    @Test
+    void load_WithDifferentKeys_ShouldNotShare() throws Exception {
+        val release = new CountDownLatch(1);
+        try (val executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            val first = executor.submit(() -> singleFlight.load(1, () -> {
+                await(release);
+                return "movie 1";
+            }));
+            while (singleFlight.inFlight() == 0) {
+                Thread.onSpinWait();
+            }
+
+            assertThat(singleFlight.load(2, () -> "movie 2")).isEqualTo("movie 2");
+            release.countDown();
+            assertThat(first.get()).isEqualTo("movie 1");
+        }
+        assertThat(requests("leader")).isEqualTo(2);
+    }
+
+    /**
+     * Starts {@value #CALLERS} calls and lets the leader finish once all the others wait for it.
+     */
+    ArrayList<Future<String>> runConcurrently(Callable<String> call, CountDownLatch release) {
+        val results = new ArrayList<Future<String>>();
+        try (val executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(executor.submit(call));
+            }
+            while (requests("shared") < CALLERS - 1) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+        }
+        return results;
+    }
+
+    double requests(String result) {
+        return meterRegistry.get("cinema.coalescing.requests").tag("name", "test").tag("result", result).counter().count();
+    }
+
+    static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.github.k1mb1.cinema_java_spring.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.k1mb1.cinema_java_spring.dtos.country.CountryRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.country.CountryResponseDto;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.utils.IntegrationTest;
 import com.github.k1mb1.cinema_java_spring.utils.IntegrationTestUtils;
 import lombok.val;
@@ -82,7 +83,7 @@ public class CountryControllerTest {
         mockMvc.perform(get(baseUrl))
                 .andExpect(status().is(HttpStatus.OK.value()))
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(equalTo(2)));
+                .andExpect(jsonPath("$.items.length()").value(equalTo(2)));
     }
 
     @Test
@@ -105,6 +106,26 @@ public class CountryControllerTest {
         assertThat(response.getName()).isEqualTo(updateRequest.getName());
     }
 
+    @Test
+    public void testPatchCountry() throws Exception {
+        val createdCountry = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new CountryRequestDto("Holland"))),
+                HttpStatus.CREATED,
+                CountryResponseDto.class
+        );
+        val url = baseUrl + "/" + createdCountry.getId();
+
+        mockMvc.perform(patch(url).contentType(MergePatch.MEDIA_TYPE).content("{\"name\": \"Netherlands\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(equalTo(createdCountry.getId())))
+                .andExpect(jsonPath("$.name").value(equalTo("Netherlands")));
+        // An empty patch changes nothing
+        mockMvc.perform(patch(url).contentType(MergePatch.MEDIA_TYPE).content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(equalTo("Netherlands")));
+        utils.expectError(patch(url).content("{\"name\": null}"), HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     public void testUpdateCountry_NotFound() throws Exception {
         CountryRequestDto updateRequest = new CountryRequestDto("Non-existent");
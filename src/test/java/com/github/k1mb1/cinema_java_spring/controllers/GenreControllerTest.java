@@ -3,11 +3,13 @@ package com.github.k1mb1.cinema_java_spring.controllers;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreResponseDto;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.utils.IntegrationTest;
 import com.github.k1mb1.cinema_java_spring.utils.IntegrationTestUtils;
 import lombok.val;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -82,7 +84,114 @@ public class GenreControllerTest {
         mockMvc.perform(get(baseUrl))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(equalTo(2)));
+                .andExpect(jsonPath("$.items.length()").value(equalTo(2)));
+    }
+
+    @Test
+    public void testGetAllGenres_Gzip() throws Exception {
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new GenreRequestDto("Drama"))),
+                HttpStatus.CREATED
+        );
+
+        mockMvc.perform(get(baseUrl).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    @Test
+    public void testGetAllGenres_GzipRefused() throws Exception {
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new GenreRequestDto("Noir"))),
+                HttpStatus.CREATED
+        );
+
+        mockMvc.perform(get(baseUrl).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.items[0].name").value(equalTo("Noir")));
+    }
+
+    @Test
+    public void testGetAllGenres_Conditional() throws Exception {
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new GenreRequestDto("Western"))),
+                HttpStatus.CREATED
+        );
+
+        val etag = mockMvc.perform(get(baseUrl))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        val gzipEtag = mockMvc.perform(get(baseUrl).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull().isNotEqualTo(gzipEtag);
+
+        mockMvc.perform(get(baseUrl).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get(baseUrl + "?limit=10"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG));
+
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new GenreRequestDto("Musical"))),
+                HttpStatus.CREATED
+        );
+
+        mockMvc.perform(get(baseUrl).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(2)));
+    }
+
+    @Test
+    public void testGetGenreById_Conditional() throws Exception {
+        val createdGenre = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new GenreRequestDto("Noir"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        val url = baseUrl + "/" + createdGenre.getId();
+        val etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testGetGenreById_StaleIfMatch() throws Exception {
+        val createdGenre = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new GenreRequestDto("Horror"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        val url = baseUrl + "/" + createdGenre.getId();
+        val etag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        // A failed precondition is not a cache hit, even when If-None-Match matches
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MATCH, "\"stale\"").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.code").value(equalTo(HttpStatus.PRECONDITION_FAILED.value())));
+        mockMvc.perform(get(url).header(HttpHeaders.IF_UNMODIFIED_SINCE, "Thu, 01 Jan 1970 00:00:00 GMT"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(equalTo("Horror")));
     }
 
     @Test
@@ -105,6 +214,26 @@ public class GenreControllerTest {
         assertThat(response.getName()).isEqualTo(updateRequest.getName());
     }
 
+    @Test
+    public void testPatchGenre() throws Exception {
+        val createdGenre = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new GenreRequestDto("Film-Noir"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        val url = baseUrl + "/" + createdGenre.getId();
+
+        mockMvc.perform(patch(url).contentType(MergePatch.MEDIA_TYPE).content("{\"name\": \"Film noir\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(equalTo(createdGenre.getId())))
+                .andExpect(jsonPath("$.name").value(equalTo("Film noir")));
+        // An empty patch changes nothing
+        mockMvc.perform(patch(url).contentType(MergePatch.MEDIA_TYPE).content("{}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(equalTo("Film noir")));
+        utils.expectError(patch(url).content("{\"name\": null}"), HttpStatus.BAD_REQUEST);
+    }
+
     @Test
     public void testUpdateGenre_NotFound() throws Exception {
         val updateRequest = new GenreRequestDto("Non-existent");
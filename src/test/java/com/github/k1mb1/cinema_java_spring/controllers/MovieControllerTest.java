@@ -1,23 +1,59 @@
 package com.github.k1mb1.cinema_java_spring.controllers;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.k1mb1.cinema_java_spring.dtos.country.CountryRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.country.CountryResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieBulkResponseDto;
 import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.user.UserRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.user.UserResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieRequestDto;
+import com.github.k1mb1.cinema_java_spring.entities.Movie;
+import com.github.k1mb1.cinema_java_spring.multiget.MultiGet;
+import com.github.k1mb1.cinema_java_spring.offheap.MovieJsonCache;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
+import com.github.k1mb1.cinema_java_spring.recommendations.SimilarMovies;
+import com.github.k1mb1.cinema_java_spring.services.MovieService;
+import com.github.k1mb1.cinema_java_spring.trending.TrendingMovies;
 import com.github.k1mb1.cinema_java_spring.utils.IntegrationTest;
 import com.github.k1mb1.cinema_java_spring.utils.IntegrationTestUtils;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Statistic;
+import jakarta.persistence.EntityManager;
 import lombok.val;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.test.json.JsonCompareMode;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -31,6 +67,16 @@ public class MovieControllerTest {
     ObjectMapper objectMapper;
     @Autowired
     IntegrationTestUtils utils;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    TrendingMovies trendingMovies;
+    @Autowired
+    SimilarMovies similarMovies;
+    @Autowired
+    MovieJsonCache movieJsonCache;
 
     @Test
     public void testCreateMovie() throws Exception {
@@ -67,6 +113,118 @@ public class MovieControllerTest {
         assertThat(response.getDescription()).isEqualTo(request.getDescription());
     }
 
+    @Test
+    public void testGetMovieById_Conditional() throws Exception {
+        val createdMovie = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Heat", "Crime thriller"))),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+        val url = baseUrl + "/" + createdMovie.getId();
+
+        val first = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn()
+                .getResponse();
+        val etag = first.getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MODIFIED_SINCE, first.getHeader(HttpHeaders.LAST_MODIFIED)))
+                .andExpect(status().isNotModified());
+
+        utils.perform(
+                put(url).content(objectMapper.writeValueAsString(createSampleMovieRequest("Heat (1995)", "Crime thriller"))),
+                HttpStatus.OK
+        );
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(jsonPath("$.title").value(equalTo("Heat (1995)")));
+        // The old tag no longer matches: the client's precondition fails instead of revalidating
+        mockMvc.perform(get(url).header(HttpHeaders.IF_MATCH, etag).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void testGetMovieById_ServedFromJsonCache() throws Exception {
+        val createdMovie = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Ronin", "Action thriller"))),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+        val url = baseUrl + "/" + createdMovie.getId();
+        val first = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        val hitsBefore = movieJsonCache.hits();
+
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(content().json(first, JsonCompareMode.STRICT));
+
+        assertThat(movieJsonCache.hits()).isEqualTo(hitsBefore + 1);
+    }
+
+    @Test
+    // Hibernate only caches rows that are committed
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testGetMovieById_ServedFromSecondLevelCache() throws Exception {
+        val genre = utils.perform(
+                post("/api/genres").content(objectMapper.writeValueAsString(new GenreRequestDto("Heist"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        val createdMovie = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(
+                        createSampleMovieRequest("Tenet", "Time inversion").setGenreIds(Set.of(genre.getId()))
+                )),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+        val url = baseUrl + "/" + createdMovie.getId();
+        try {
+            utils.perform(get(url), HttpStatus.OK);
+            // Force the next request past the serialized body cache
+            movieJsonCache.invalidate(createdMovie.getId());
+            val statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+            val movieHitsBefore = statistics.getDomainDataRegionStatistics(Movie.CACHE_REGION).getHitCount();
+            val genresHitsBefore = statistics.getDomainDataRegionStatistics(Movie.GENRES_CACHE_REGION).getHitCount();
+
+            mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.title").value(equalTo("Tenet")))
+                    .andExpect(jsonPath("$.genres[0].name").value(equalTo("Heist")));
+
+            assertThat(statistics.getDomainDataRegionStatistics(Movie.CACHE_REGION).getHitCount())
+                    .isEqualTo(movieHitsBefore + 1);
+            assertThat(statistics.getDomainDataRegionStatistics(Movie.GENRES_CACHE_REGION).getHitCount())
+                    .isEqualTo(genresHitsBefore + 1);
+
+            // The join row goes with the genre in the database; the cached collection must not keep it
+            utils.perform(delete("/api/genres/" + genre.getId()), HttpStatus.NO_CONTENT);
+            val genresMissesBefore = statistics.getDomainDataRegionStatistics(Movie.GENRES_CACHE_REGION).getMissCount();
+
+            mockMvc.perform(get(url))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.genres").isEmpty());
+            assertThat(statistics.getDomainDataRegionStatistics(Movie.GENRES_CACHE_REGION).getMissCount())
+                    .isEqualTo(genresMissesBefore + 1);
+        } finally {
+            utils.perform(delete(url), HttpStatus.NO_CONTENT);
+        }
+    }
+
     @Test
     @Rollback
     public void testGetMovieById_NotFound() throws Exception {
@@ -92,7 +250,426 @@ public class MovieControllerTest {
         mockMvc.perform(get(baseUrl))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(equalTo(2)));
+                .andExpect(jsonPath("$.items.length()").value(equalTo(2)));
+    }
+
+    @Test
+    public void testGetAllMovies_StatementsDoNotGrowWithPageSize() throws Exception {
+        val genres = new ArrayList<Integer>();
+        for (val name : List.of("Western", "Noir")) {
+            genres.add(utils.perform(
+                    post("/api/genres").content(objectMapper.writeValueAsString(new GenreRequestDto(name))),
+                    HttpStatus.CREATED,
+                    GenreResponseDto.class
+            ).getId());
+        }
+        for (int i = 0; i < 6; i++) {
+            utils.perform(
+                    post(baseUrl).content(objectMapper.writeValueAsString(
+                            createSampleMovieRequest("Western " + i, "Noir western").setGenreIds(Set.copyOf(genres))
+                    )),
+                    HttpStatus.CREATED
+            );
+        }
+        val statements = new ArrayList<Integer>();
+        for (val limit : List.of(2, 6)) {
+            // Every movie's collections have to be fetched, as in a fresh request
+            entityManager.flush();
+            entityManager.clear();
+
+            statements.add(utils.performWithinStatementBudget(get(baseUrl + "?limit=" + limit), HttpStatus.OK)
+                    .getPreparedStatements());
+        }
+
+        assertThat(statements.get(0)).isPositive();
+        assertThat(statements.get(1)).isEqualTo(statements.get(0));
+    }
+
+    @Test
+    public void testGetMoviesByIds() throws Exception {
+        val genre = utils.perform(
+                post("/api/genres").content(objectMapper.writeValueAsString(new GenreRequestDto("Space opera"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        val movies = new ArrayList<MovieResponseDto>();
+        for (val title : List.of("Dune", "Solaris")) {
+            movies.add(utils.perform(
+                    post(baseUrl).content(objectMapper.writeValueAsString(
+                            createSampleMovieRequest(title, "Sci-fi").setGenreIds(Set.of(genre.getId()))
+                    )),
+                    HttpStatus.CREATED,
+                    MovieResponseDto.class
+            ));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        val missingId = movies.get(1).getId() + 1000;
+        val ids = "%d,%d,%d".formatted(movies.get(1).getId(), missingId, movies.get(0).getId());
+
+        mockMvc.perform(get(baseUrl).param("ids", ids))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].title", contains("Solaris", "Dune")))
+                .andExpect(jsonPath("$.items[0].genres[*].name", contains("Space opera")))
+                .andExpect(jsonPath("$.missing", contains(missingId)));
+        entityManager.clear();
+
+        // Movies and their collections in a single IN-list query
+        assertThat(utils.performWithinStatementBudget(get(baseUrl).param("ids", ids), HttpStatus.OK)
+                .getPreparedStatements()).isEqualTo(1);
+        utils.expectError(
+                get(baseUrl).param("ids", IntStream.rangeClosed(1, MultiGet.MAX_IDS + 1)
+                        .mapToObj(String::valueOf)
+                        .collect(Collectors.joining(","))),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @Test
+    @Rollback
+    public void testGetAllMovies_Paginated() throws Exception {
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Alien", "Sci-fi horror"))),
+                HttpStatus.CREATED
+        );
+        val second = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Aliens", "Sci-fi action"))),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+
+        val firstPage = utils.perform(
+                get(baseUrl).param("limit", "1"),
+                HttpStatus.OK,
+                new TypeReference<CursorPageResponseDto<MovieResponseDto>>() {
+                }
+        );
+
+        assertThat(firstPage.getItems()).hasSize(1);
+        assertThat(firstPage.getNextCursor()).isNotNull();
+
+        mockMvc.perform(get(baseUrl).param("limit", "1").param("after", firstPage.getNextCursor()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(1)))
+                .andExpect(jsonPath("$.items[0].id").value(equalTo(second.getId())))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @Rollback
+    public void testGetMovieById_RecordsPersistenceMetrics() throws Exception {
+        val createdMovie = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Memento", "Mystery thriller"))),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+        // Start from an empty persistence context, as a real request would
+        entityManager.flush();
+        entityManager.clear();
+        // Meters live as long as the shared test context, so compare against their previous values
+        val endpoint = "MovieController#getMovieById";
+        val requestsBefore = meterCount("cinema.persistence.statements", "endpoint", endpoint);
+        val loadsBefore = meterCount("cinema.persistence.entity.loads", "endpoint", endpoint, "entity", "Movie");
+        val findsBefore = meterCount("spring.data.repository.invocations", "endpoint", endpoint, "method", "findById");
+
+        utils.perform(get(baseUrl + "/" + createdMovie.getId()), HttpStatus.OK);
+
+        assertThat(meterCount("cinema.persistence.statements", "endpoint", endpoint)).isEqualTo(requestsBefore + 1);
+        assertThat(meterRegistry.get("cinema.persistence.statements").tag("endpoint", endpoint).summary().max())
+                .isPositive();
+        assertThat(meterRegistry.get("cinema.persistence.rows").tag("endpoint", endpoint).summary().max())
+                .isPositive();
+        assertThat(meterCount("cinema.persistence.entity.loads", "endpoint", endpoint, "entity", "Movie"))
+                .isEqualTo(loadsBefore + 1);
+        assertThat(meterCount("spring.data.repository.invocations", "endpoint", endpoint, "method", "findById"))
+                .isEqualTo(findsBefore + 1);
+    }
+
+    @Test
+    public void testGetAllMovies_Conditional() throws Exception {
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Alien", "Sci-fi horror"))),
+                HttpStatus.CREATED
+        );
+        val etag = mockMvc.perform(get(baseUrl))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(baseUrl).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Aliens", "Sci-fi action"))),
+                HttpStatus.CREATED
+        );
+
+        mockMvc.perform(get(baseUrl).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(2)));
+    }
+
+    @Test
+    @Rollback
+    public void testGetAllMovies_InvalidCursor() throws Exception {
+        utils.expectError(get(baseUrl).param("after", "not-a-cursor"), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @Rollback
+    public void testCreateMovies_Bulk() throws Exception {
+        val genre = utils.perform(
+                post("/api/genres").content(objectMapper.writeValueAsString(new GenreRequestDto("Thriller"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        val country = utils.perform(
+                post("/api/countries").content(objectMapper.writeValueAsString(new CountryRequestDto("France"))),
+                HttpStatus.CREATED,
+                CountryResponseDto.class
+        );
+        val requests = List.of(
+                createSampleMovieRequest("Heat", "Crime thriller").setGenreIds(Set.of(genre.getId())),
+                createSampleMovieRequest("", "Missing title"),
+                createSampleMovieRequest("Ronin", "Action thriller")
+                        .setGenreIds(Set.of(genre.getId()))
+                        .setCountryIds(Set.of(country.getId()))
+        );
+
+        val response = utils.perform(
+                post(baseUrl + "/bulk").content(objectMapper.writeValueAsString(requests)),
+                HttpStatus.OK,
+                MovieBulkResponseDto.class
+        );
+
+        assertThat(response.getCreated()).isEqualTo(2);
+        assertThat(response.getFailed()).isEqualTo(1);
+        assertThat(response.getItems().get(1).getError()).isNotBlank();
+
+        val created = utils.perform(
+                get(baseUrl + "/" + response.getItems().get(2).getId()),
+                HttpStatus.OK,
+                MovieResponseDto.class
+        );
+        assertThat(created.getTitle()).isEqualTo("Ronin");
+        assertThat(created.getGenres()).extracting(GenreResponseDto::getId).containsExactly(genre.getId());
+        assertThat(created.getCountries()).extracting(CountryResponseDto::getId).containsExactly(country.getId());
+    }
+
+    @Test
+    @Rollback
+    public void testCreateMovies_LargestBulkStaysWithinStatementBudget() throws Exception {
+        val genre = utils.perform(
+                post("/api/genres").content(objectMapper.writeValueAsString(new GenreRequestDto("B-movie"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        val country = utils.perform(
+                post("/api/countries").content(objectMapper.writeValueAsString(new CountryRequestDto("Italy"))),
+                HttpStatus.CREATED,
+                CountryResponseDto.class
+        );
+        val requests = IntStream.range(0, MovieService.BULK_MAX_SIZE)
+                .mapToObj(i -> createSampleMovieRequest("Sequel " + i, "Again")
+                        .setGenreIds(Set.of(genre.getId()))
+                        .setCountryIds(Set.of(country.getId())))
+                .toList();
+
+        val stats = utils.performWithinStatementBudget(
+                post(baseUrl + "/bulk").content(objectMapper.writeValueAsString(requests)),
+                HttpStatus.OK
+        );
+
+        assertThat(stats.getStatementBudget()).isEqualTo(MovieService.BULK_STATEMENT_BUDGET);
+    }
+
+    @Test
+    @Rollback
+    public void testSearchMovies() throws Exception {
+        for (val request : List.of(
+                createSampleMovieRequest("Galaxy Quest", "Actors of a space show meet real aliens"),
+                createSampleMovieRequest("The Matrix", "A hacker learns the world is a simulation"),
+                createSampleMovieRequest("Guardians of the Galaxy", "Outlaws team up in space"),
+                createSampleMovieRequest("Heat", "A crew of thieves and a detective")
+        )) {
+            utils.perform(post(baseUrl).content(objectMapper.writeValueAsString(request)), HttpStatus.CREATED);
+        }
+
+        val firstPage = utils.perform(
+                get(baseUrl + "/search").param("q", "galaxy space").param("limit", "1"),
+                HttpStatus.OK,
+                new TypeReference<CursorPageResponseDto<MovieResponseDto>>() {
+                }
+        );
+        assertThat(firstPage.getItems()).hasSize(1);
+        assertThat(firstPage.getNextCursor()).isNotNull();
+
+        mockMvc.perform(get(baseUrl + "/search")
+                        .param("q", "galaxy space")
+                        .param("after", firstPage.getNextCursor()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(1)))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+        mockMvc.perform(get(baseUrl + "/search").param("q", "simulations"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(1)))
+                .andExpect(jsonPath("$.items[0].title").value(equalTo("The Matrix")));
+    }
+
+    @Test
+    @Rollback
+    public void testSearchMovies_RanksTitleMatchesFirst() throws Exception {
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Arrival", "Linguist meets a heptapod"))),
+                HttpStatus.CREATED
+        );
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Contact", "Astronomer awaits the heptapod arrival"))),
+                HttpStatus.CREATED
+        );
+
+        mockMvc.perform(get(baseUrl + "/search").param("q", "arrival"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(2)))
+                .andExpect(jsonPath("$.items[0].title").value(equalTo("Arrival")));
+    }
+
+    @Test
+    @Rollback
+    public void testSearchMovies_BlankQuery() throws Exception {
+        utils.expectError(get(baseUrl + "/search").param("q", " "), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @Rollback
+    public void testGetTrendingMovies() throws Exception {
+        val user = utils.perform(
+                post("/api/users").content(objectMapper.writeValueAsString(new UserRequestDto().setUsername("trendsetter"))),
+                HttpStatus.CREATED,
+                UserResponseDto.class
+        );
+        val movie = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Oppenheimer", "Physics"))),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+        utils.perform(
+                post("/api/watched-movies").content(objectMapper.writeValueAsString(
+                        new WatchedMovieRequestDto(user.getId(), movie.getId())
+                )),
+                HttpStatus.CREATED
+        );
+        // The watch is only counted on commit, which never happens here; the rebuild reads it instead
+        trendingMovies.rebuild();
+
+        for (val window : List.of("1h", "24h", "7d")) {
+            mockMvc.perform(get(baseUrl + "/trending").param("window", window).param("limit", "100"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[?(@.movieId == " + movie.getId() + ")].watches").value(contains(1)));
+        }
+    }
+
+    @Test
+    @Rollback
+    public void testGetSimilarMovies() throws Exception {
+        val movies = new ArrayList<MovieResponseDto>();
+        for (val title : List.of("Before Sunrise", "Before Sunset", "Before Midnight", "Cars")) {
+            movies.add(utils.perform(
+                    post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest(title, "Drama"))),
+                    HttpStatus.CREATED,
+                    MovieResponseDto.class
+            ));
+        }
+        for (val username : List.of("jesse", "celine")) {
+            val user = utils.perform(
+                    post("/api/users").content(objectMapper.writeValueAsString(new UserRequestDto().setUsername(username))),
+                    HttpStatus.CREATED,
+                    UserResponseDto.class
+            );
+            for (val movie : movies.subList(0, 3)) {
+                utils.perform(
+                        post("/api/watched-movies").content(objectMapper.writeValueAsString(
+                                new WatchedMovieRequestDto(user.getId(), movie.getId())
+                        )),
+                        HttpStatus.CREATED
+                );
+            }
+        }
+        // Reads the uncommitted watches through the test transaction
+        similarMovies.rebuild();
+
+        mockMvc.perform(get(baseUrl + "/" + movies.get(0).getId() + "/similar"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(equalTo(2)))
+                .andExpect(jsonPath("$[0].movieId").value(equalTo(movies.get(1).getId())))
+                .andExpect(jsonPath("$[0].score").value(equalTo(1.0)))
+                .andExpect(jsonPath("$[1].movieId").value(equalTo(movies.get(2).getId())));
+        mockMvc.perform(get(baseUrl + "/" + movies.get(3).getId() + "/similar"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(equalTo(0)));
+        utils.expectError(get(baseUrl + "/99999/similar"), HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @Rollback
+    public void testGetTrendingMovies_UnknownWindow() throws Exception {
+        utils.expectError(get(baseUrl + "/trending").param("window", "1y"), HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    @Rollback
+    public void testGetAllMovies_FilteredByGenre() throws Exception {
+        val genre = utils.perform(
+                post("/api/genres").content(objectMapper.writeValueAsString(new GenreRequestDto("Western"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(
+                        createSampleMovieRequest("Unforgiven", "Retired gunslinger").setGenreIds(Set.of(genre.getId()))
+                )),
+                HttpStatus.CREATED
+        );
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Amelie", "Paris"))),
+                HttpStatus.CREATED
+        );
+
+        mockMvc.perform(get(baseUrl).param("genreIds", String.valueOf(genre.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(1)))
+                .andExpect(jsonPath("$.items[0].title").value(equalTo("Unforgiven")));
+    }
+
+    @Test
+    @Rollback
+    public void testGetAllMovies_FilteredByRanges() throws Exception {
+        for (val request : List.of(
+                createSampleMovieRequest("Alien", "Space horror").setYear(1979).setAgeRating("R").setDurationMinutes(117),
+                createSampleMovieRequest("Aliens", "Space war").setYear(1986).setAgeRating("R").setDurationMinutes(137),
+                createSampleMovieRequest("E.T.", "Friendly alien").setYear(1982).setAgeRating("PG").setDurationMinutes(115)
+        )) {
+            utils.perform(post(baseUrl).content(objectMapper.writeValueAsString(request)), HttpStatus.CREATED);
+        }
+
+        mockMvc.perform(get(baseUrl).param("yearFrom", "1980").param("yearTo", "1989"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(2)));
+
+        mockMvc.perform(get(baseUrl)
+                        .param("yearFrom", "1970")
+                        .param("ageRatings", "R")
+                        .param("maxDuration", "120"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(1)))
+                .andExpect(jsonPath("$.items[0].title").value(equalTo("Alien")));
+
+        mockMvc.perform(get(baseUrl).param("releasedFrom", "2030-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(0)));
     }
 
     @Test
@@ -117,6 +694,65 @@ public class MovieControllerTest {
         assertThat(response.getDescription()).isEqualTo(updateRequest.getDescription());
     }
 
+    @Test
+    public void testPatchMovie() throws Exception {
+        val genres = new ArrayList<GenreResponseDto>();
+        for (val name : List.of("Drama", "Crime", "Heist")) {
+            genres.add(utils.perform(
+                    post("/api/genres").content(objectMapper.writeValueAsString(new GenreRequestDto(name))),
+                    HttpStatus.CREATED,
+                    GenreResponseDto.class
+            ));
+        }
+        val createdMovie = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(
+                        createSampleMovieRequest("Heat", "Crime thriller")
+                                .setGenreIds(Set.of(genres.get(0).getId(), genres.get(1).getId()))
+                )),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+        entityManager.flush();
+        entityManager.clear();
+        val genreRows = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics()
+                .getCollectionStatistics(Movie.class.getName() + ".genres");
+        val recreatesBefore = genreRows.getRecreateCount();
+        val updatesBefore = genreRows.getUpdateCount();
+
+        mockMvc.perform(patch(baseUrl + "/" + createdMovie.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("""
+                                {"title": "Heat (1995)", "description": null, "genreIds": [%d, %d]}"""
+                                .formatted(genres.get(1).getId(), genres.get(2).getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value(equalTo("Heat (1995)")))
+                .andExpect(jsonPath("$.description").value(nullValue()))
+                .andExpect(jsonPath("$.durationMinutes").value(equalTo(createdMovie.getDurationMinutes())))
+                .andExpect(jsonPath("$.genres[*].name", containsInAnyOrder("Crime", "Heist")))
+                .andExpect(jsonPath("$.countries", hasSize(createdMovie.getCountries().size())));
+
+        // One join row removed and one added, not all of them replaced
+        assertThat(genreRows.getRecreateCount()).isEqualTo(recreatesBefore);
+        assertThat(genreRows.getUpdateCount()).isEqualTo(updatesBefore + 1);
+    }
+
+    @Test
+    @Rollback
+    public void testPatchMovie_Invalid() throws Exception {
+        val createdMovie = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleMovieRequest("Jaws", "Shark thriller"))),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+        val url = baseUrl + "/" + createdMovie.getId();
+
+        utils.expectError(patch(url).content("{\"title\": null}"), HttpStatus.BAD_REQUEST);
+        utils.expectError(patch(url).content("{\"titel\": \"Jaws (1975)\"}"), HttpStatus.BAD_REQUEST);
+        utils.expectError(patch(url).content("{\"year\": \"last year\"}"), HttpStatus.BAD_REQUEST);
+        utils.expectError(patch(url).content("[]"), HttpStatus.BAD_REQUEST);
+        utils.expectError(patch(baseUrl + "/99999").content("{}"), HttpStatus.NOT_FOUND);
+    }
+
     @Test
     @Rollback
     public void testUpdateMovie_NotFound() throws Exception {
@@ -151,6 +787,52 @@ public class MovieControllerTest {
         utils.expectError(delete(baseUrl + "/99999"), HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    @Rollback
+    public void testDeleteMovies() throws Exception {
+        val genre = utils.perform(
+                post("/api/genres").content(objectMapper.writeValueAsString(new GenreRequestDto("Noir"))),
+                HttpStatus.CREATED,
+                GenreResponseDto.class
+        );
+        val ids = new ArrayList<Integer>();
+        for (val title : List.of("Chinatown", "Vertigo", "Laura")) {
+            ids.add(utils.perform(
+                    post(baseUrl).content(objectMapper.writeValueAsString(
+                            createSampleMovieRequest(title, "Noir").setGenreIds(Set.of(genre.getId()))
+                    )),
+                    HttpStatus.CREATED,
+                    MovieResponseDto.class
+            ).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+        val statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        val statementsBefore = statistics.getPrepareStatementCount();
+
+        mockMvc.perform(delete(baseUrl).param("ids", ids.get(0) + "," + ids.get(1) + ",99999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted").value(equalTo(2)));
+        utils.perform(delete(baseUrl + "/" + ids.get(2)), HttpStatus.NO_CONTENT);
+
+        // The join rows go through ON DELETE CASCADE, nothing is loaded first
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(statementsBefore + 2);
+        for (val id : ids) {
+            utils.expectError(get(baseUrl + "/" + id), HttpStatus.NOT_FOUND);
+        }
+        utils.expectError(delete(baseUrl).param("ids", IntStream.rangeClosed(1, 1_001)
+                .mapToObj(String::valueOf)
+                .collect(Collectors.joining(","))), HttpStatus.BAD_REQUEST);
+    }
+
+    double meterCount(String name, String... tags) {
+        return meterRegistry.find(name).tags(tags).meters().stream()
+                .flatMap(meter -> StreamSupport.stream(meter.measure().spliterator(), false))
+                .filter(measurement -> measurement.getStatistic() == Statistic.COUNT)
+                .mapToDouble(Measurement::getValue)
+                .sum();
+    }
+
         MovieRequestDto createSampleMovieRequest(String title, String description) {
         return new MovieRequestDto()
                 .setTitle(title)
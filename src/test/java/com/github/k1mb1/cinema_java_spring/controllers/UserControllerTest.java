@@ -1,20 +1,37 @@
 package com.github.k1mb1.cinema_java_spring.controllers;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.k1mb1.cinema_java_spring.errors.Error;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.page.CursorPageResponseDto;
 import com.github.k1mb1.cinema_java_spring.dtos.user.UserRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.user.UserResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchHistoryItemDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieBatchItemDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.User;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.utils.IntegrationTest;
 import com.github.k1mb1.cinema_java_spring.utils.IntegrationTestUtils;
 import lombok.val;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -63,6 +80,51 @@ public class UserControllerTest {
         assertThat(response.getUsername()).isEqualTo(request.getUsername());
     }
 
+    @Test
+    public void testGetUsersByIds() throws Exception {
+        val first = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleUserRequest("multi.one@example.com"))),
+                HttpStatus.CREATED,
+                UserResponseDto.class
+        );
+        val second = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleUserRequest("multi.two@example.com"))),
+                HttpStatus.CREATED,
+                UserResponseDto.class
+        );
+        val missingId = second.getId() + 1000;
+
+        mockMvc.perform(get(baseUrl).param("ids", "%d,%d,%d".formatted(second.getId(), missingId, first.getId())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[*].id", contains(second.getId(), first.getId())))
+                .andExpect(jsonPath("$.missing", contains(missingId)));
+    }
+
+    @Test
+    public void testGetAllUsers_Conditional() throws Exception {
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleUserRequest("etag.one@example.com"))),
+                HttpStatus.CREATED
+        );
+        val etag = mockMvc.perform(get(baseUrl))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(baseUrl).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleUserRequest("etag.two@example.com"))),
+                HttpStatus.CREATED
+        );
+
+        mockMvc.perform(get(baseUrl).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
     @Test
     public void testGetUserById_NotFound() throws Exception {
         var error = utils.expectError(get(baseUrl + "/99999"), HttpStatus.NOT_FOUND);
@@ -87,7 +149,7 @@ public class UserControllerTest {
         mockMvc.perform(get(baseUrl))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.length()").value(equalTo(2)));
+                .andExpect(jsonPath("$.items.length()").value(equalTo(2)));
     }
 
     @Test
@@ -110,6 +172,23 @@ public class UserControllerTest {
         assertThat(response.getUsername()).isEqualTo(updateRequest.getUsername());
     }
 
+    @Test
+    public void testPatchUser() throws Exception {
+        val createdUser = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new UserRequestDto().setUsername("patch.me@example.com"))),
+                HttpStatus.CREATED,
+                UserResponseDto.class
+        );
+
+        mockMvc.perform(patch(baseUrl + "/" + createdUser.getId())
+                        .contentType(MergePatch.MEDIA_TYPE)
+                        .content("{\"username\": \"patched@example.com\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(equalTo(createdUser.getId())))
+                .andExpect(jsonPath("$.username").value(equalTo("patched@example.com")));
+        utils.expectError(patch(baseUrl + "/99999").content("{}"), HttpStatus.NOT_FOUND);
+    }
+
     @Test
     public void testUpdateUser_NotFound() throws Exception {
         val updateRequest = User.builder().username("user@example.com").build();
@@ -138,6 +217,114 @@ public class UserControllerTest {
         assertThat(error.status()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    public void testExportWatchedMovies() throws Exception {
+        val user = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleUserRequest("exporter"))),
+                HttpStatus.CREATED,
+                UserResponseDto.class
+        );
+        for (val title : List.of("Heat", "Ronin")) {
+            val movie = utils.perform(
+                    post("/api/movies").content(objectMapper.writeValueAsString(
+                            new MovieRequestDto().setTitle(title).setReleaseDate(LocalDate.of(1995, 1, 1))
+                    )),
+                    HttpStatus.CREATED,
+                    MovieResponseDto.class
+            );
+            utils.perform(
+                    post("/api/watched-movies").content(objectMapper.writeValueAsString(
+                            new WatchedMovieRequestDto(user.getId(), movie.getId())
+                    )),
+                    HttpStatus.CREATED
+            );
+        }
+
+        val body = mockMvc.perform(get(baseUrl + "/" + user.getId() + "/watched-movies/export"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        val lines = body.lines().toList();
+        assertThat(body).endsWith("\n");
+        assertThat(lines).hasSize(2);
+        val watchedAts = new ArrayList<LocalDateTime>();
+        for (val line : lines) {
+            val watchedMovie = objectMapper.readValue(line, WatchedMovieResponseDto.class);
+            assertThat(watchedMovie.getUserId()).isEqualTo(user.getId());
+            assertThat(watchedMovie.getWatchedAt()).isNotNull();
+            watchedAts.add(watchedMovie.getWatchedAt());
+        }
+        assertThat(watchedAts).isSortedAccordingTo(Comparator.reverseOrder());
+    }
+
+    @Test
+    public void testGetWatchHistory() throws Exception {
+        val user = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleUserRequest("historian"))),
+                HttpStatus.CREATED,
+                UserResponseDto.class
+        );
+        val batch = new ArrayList<WatchedMovieBatchItemDto>();
+        for (val title : List.of("Vertigo", "Psycho", "Rope")) {
+            val movie = utils.perform(
+                    post("/api/movies").content(objectMapper.writeValueAsString(
+                            new MovieRequestDto().setTitle(title).setReleaseDate(LocalDate.of(1958, 1, 1))
+                    )),
+                    HttpStatus.CREATED,
+                    MovieResponseDto.class
+            );
+            batch.add(new WatchedMovieBatchItemDto(user.getId(), movie.getId(), LocalDateTime.of(2024, 1, batch.size() + 1, 20, 0)));
+        }
+        utils.perform(post("/api/watched-movies/batch").content(objectMapper.writeValueAsString(batch)), HttpStatus.OK);
+
+        val firstPage = utils.perform(
+                get(baseUrl + "/" + user.getId() + "/watched-movies").param("limit", "2"),
+                HttpStatus.OK,
+                new TypeReference<CursorPageResponseDto<WatchHistoryItemDto>>() {
+                }
+        );
+        assertThat(firstPage.getItems()).hasSize(2);
+        assertThat(firstPage.getNextCursor()).isNotNull();
+
+        mockMvc.perform(get(baseUrl + "/" + user.getId() + "/watched-movies").param("limit", "2"))
+                .andExpect(jsonPath("$.items[0].movieTitle").value(equalTo("Rope")))
+                .andExpect(jsonPath("$.items[1].movieTitle").value(equalTo("Psycho")));
+
+        mockMvc.perform(get(baseUrl + "/" + user.getId() + "/watched-movies")
+                        .param("limit", "2")
+                        .param("after", firstPage.getNextCursor()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(1)))
+                .andExpect(jsonPath("$.items[0].movieTitle").value(equalTo("Vertigo")))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    public void testGetWatchHistory_Empty() throws Exception {
+        val user = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(createSampleUserRequest("newcomer"))),
+                HttpStatus.CREATED,
+                UserResponseDto.class
+        );
+
+        mockMvc.perform(get(baseUrl + "/" + user.getId() + "/watched-movies"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(0)));
+    }
+
+    @Test
+    public void testGetWatchHistory_NotFound() throws Exception {
+        utils.expectError(get(baseUrl + "/99999/watched-movies"), HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    public void testExportWatchedMovies_NotFound() throws Exception {
+        utils.expectError(get(baseUrl + "/99999/watched-movies/export"), HttpStatus.NOT_FOUND);
+    }
+
     @Test
     public void testDeleteUser_NotFound() throws Exception {
         Error error = utils.expectError(delete(baseUrl + "/99999"), HttpStatus.NOT_FOUND);
@@ -0,0 +1,262 @@
+package com.github.k1mb1.cinema_java_spring.controllers;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.user.UserRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.user.UserResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieBatchItemDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieRequestDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieResponseDto;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
+import com.github.k1mb1.cinema_java_spring.utils.IntegrationTest;
+import com.github.k1mb1.cinema_java_spring.utils.IntegrationTestUtils;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@IntegrationTest
+public class WatchedMovieControllerTest {
+
+    final String baseUrl = "/api/watched-movies";
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    IntegrationTestUtils utils;
+
+    @Test
+    public void testMarkMovieAsWatched() throws Exception {
+        val user = createUser("watcher");
+        val movie = createMovie("Solaris");
+
+        val response = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new WatchedMovieRequestDto(user.getId(), movie.getId()))),
+                HttpStatus.CREATED,
+                WatchedMovieResponseDto.class
+        );
+
+        assertThat(response.getId()).isNotNull();
+        assertThat(response.getUserId()).isEqualTo(user.getId());
+        assertThat(response.getMovieId()).isEqualTo(movie.getId());
+        assertThat(response.getWatchedAt()).isNotNull();
+    }
+
+    @Test
+    public void testMarkMovieAsWatched_UserNotFound() throws Exception {
+        val movie = createMovie("Stalker");
+
+        val error = utils.expectError(
+                post(baseUrl).content(objectMapper.writeValueAsString(new WatchedMovieRequestDto(99999, movie.getId()))),
+                HttpStatus.NOT_FOUND
+        );
+
+        assertThat(error.message()).startsWith("User not found");
+    }
+
+    @Test
+    public void testMarkMovieAsWatched_MovieNotFound() throws Exception {
+        val user = createUser("watcher");
+
+        val error = utils.expectError(
+                post(baseUrl).content(objectMapper.writeValueAsString(new WatchedMovieRequestDto(user.getId(), 99999))),
+                HttpStatus.NOT_FOUND
+        );
+
+        assertThat(error.message()).startsWith("Movie not found");
+    }
+
+    @Test
+    public void testMarkMoviesAsWatched_Batch() throws Exception {
+        val user = createUser("binge-watcher");
+        val first = createMovie("Alien");
+        val second = createMovie("Aliens");
+        val earlier = LocalDateTime.of(2024, 5, 1, 20, 0);
+        val later = earlier.plusHours(2);
+
+        val response = markAsWatched(List.of(
+                new WatchedMovieBatchItemDto(user.getId(), first.getId(), earlier),
+                new WatchedMovieBatchItemDto(user.getId(), second.getId(), earlier),
+                new WatchedMovieBatchItemDto(user.getId(), first.getId(), later)
+        ));
+
+        assertThat(response).hasSize(2);
+        assertThat(response)
+                .filteredOn(watchedMovie -> watchedMovie.getMovieId().equals(first.getId()))
+                .singleElement()
+                .satisfies(watchedMovie -> assertThat(watchedMovie.getWatchedAt()).isEqualTo(later));
+    }
+
+    @Test
+    public void testMarkMoviesAsWatched_Batch_IsIdempotent() throws Exception {
+        val user = createUser("re-watcher");
+        val movie = createMovie("Heat");
+        val watchedAt = LocalDateTime.of(2024, 5, 1, 20, 0);
+        val batch = List.of(new WatchedMovieBatchItemDto(user.getId(), movie.getId(), watchedAt));
+
+        val created = markAsWatched(batch).getFirst();
+        val replayed = markAsWatched(batch).getFirst();
+        val older = markAsWatched(List.of(
+                new WatchedMovieBatchItemDto(user.getId(), movie.getId(), watchedAt.minusDays(1))
+        )).getFirst();
+
+        assertThat(replayed.getId()).isEqualTo(created.getId());
+        assertThat(replayed.getWatchedAt()).isEqualTo(watchedAt);
+        assertThat(older.getWatchedAt()).isEqualTo(watchedAt);
+    }
+
+    @Test
+    public void testMarkMoviesAsWatched_Batch_RewatchMovesToLaterPartition() throws Exception {
+        val user = createUser("monthly-watcher");
+        val movie = createMovie("Memento");
+        val thisMonth = YearMonth.now(ZoneOffset.UTC).atDay(1).atTime(12, 0);
+
+        val created = markAsWatched(List.of(new WatchedMovieBatchItemDto(user.getId(), movie.getId(), thisMonth))).getFirst();
+        val rewatched = markAsWatched(List.of(
+                new WatchedMovieBatchItemDto(user.getId(), movie.getId(), thisMonth.plusMonths(1))
+        )).getFirst();
+
+        assertThat(rewatched.getId()).isEqualTo(created.getId());
+        assertThat(rewatched.getWatchedAt()).isEqualTo(thisMonth.plusMonths(1));
+        mockMvc.perform(get("/api/users/" + user.getId() + "/watched-movies"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(equalTo(1)));
+    }
+
+    @Test
+    // Batch watches are counted towards trending on commit
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testMarkMoviesAsWatched_Batch_CountsNewWatchesTowardsTrending() throws Exception {
+        val user = createUser("trend-flusher");
+        val movie = createMovie("Dune");
+        val trending = get("/api/movies/trending").param("window", "1h").param("limit", "100");
+        val watches = "$[?(@.movieId == " + movie.getId() + ")].watches";
+        try {
+            mockMvc.perform(trending).andExpect(jsonPath(watches).value(empty()));
+
+            markAsWatched(List.of(new WatchedMovieBatchItemDto(user.getId(), movie.getId(), null)));
+
+            mockMvc.perform(trending).andExpect(jsonPath(watches).value(contains(1)));
+
+            // A re-watch only moves watchedAt forward, as a rebuild would count it
+            markAsWatched(List.of(new WatchedMovieBatchItemDto(user.getId(), movie.getId(), null)));
+
+            mockMvc.perform(trending).andExpect(jsonPath(watches).value(contains(1)));
+        } finally {
+            utils.perform(delete("/api/users/" + user.getId()), HttpStatus.NO_CONTENT);
+            utils.perform(delete("/api/movies/" + movie.getId()), HttpStatus.NO_CONTENT);
+        }
+    }
+
+    @Test
+    public void testMarkMoviesAsWatched_Batch_UnknownReferences() throws Exception {
+        val user = createUser("lost-watcher");
+        val movie = createMovie("Ronin");
+
+        val error = utils.expectError(
+                post(baseUrl + "/batch").content(objectMapper.writeValueAsString(List.of(
+                        new WatchedMovieBatchItemDto(user.getId(), movie.getId(), null),
+                        new WatchedMovieBatchItemDto(user.getId(), 99999, null)
+                ))),
+                HttpStatus.NOT_FOUND
+        );
+
+        assertThat(error.message()).contains("99999");
+    }
+
+    @Test
+    public void testMarkMoviesAsWatched_Batch_MissingIds() throws Exception {
+        utils.expectError(
+                post(baseUrl + "/batch").content(objectMapper.writeValueAsString(List.of(
+                        new WatchedMovieBatchItemDto(null, 1, null)
+                ))),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    @Test
+    public void testPatchWatchedMovie() throws Exception {
+        val user = createUser("rewatcher");
+        val movie = createMovie("Paprika");
+        val watched = utils.perform(
+                post(baseUrl).content(objectMapper.writeValueAsString(new WatchedMovieRequestDto(user.getId(), movie.getId()))),
+                HttpStatus.CREATED,
+                WatchedMovieResponseDto.class
+        );
+        val watchedAt = LocalDateTime.now(ZoneOffset.UTC).minusDays(3).withNano(0);
+
+        val response = objectMapper.readValue(
+                mockMvc.perform(patch(baseUrl + "/" + watched.getId())
+                                .contentType(MergePatch.MEDIA_TYPE)
+                                .content("{\"watchedAt\": \"%s\"}".formatted(watchedAt)))
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString(),
+                WatchedMovieResponseDto.class
+        );
+
+        assertThat(response.getWatchedAt()).isEqualTo(watchedAt);
+        assertThat(response.getUserId()).isEqualTo(user.getId());
+        assertThat(response.getMovieId()).isEqualTo(movie.getId());
+        // The (user, movie) pair is not editable
+        utils.expectError(
+                patch(baseUrl + "/" + watched.getId()).content("{\"movieId\": %d}".formatted(movie.getId())),
+                HttpStatus.BAD_REQUEST
+        );
+    }
+
+    List<WatchedMovieResponseDto> markAsWatched(List<WatchedMovieBatchItemDto> items) throws Exception {
+        val body = mockMvc.perform(post(baseUrl + "/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(items)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readValue(body, new TypeReference<>() {
+        });
+    }
+
+    UserResponseDto createUser(String username) throws Exception {
+        return utils.perform(
+                post("/api/users").content(objectMapper.writeValueAsString(new UserRequestDto().setUsername(username))),
+                HttpStatus.CREATED,
+                UserResponseDto.class
+        );
+    }
+
+    MovieResponseDto createMovie(String title) throws Exception {
+        return utils.perform(
+                post("/api/movies").content(objectMapper.writeValueAsString(
+                        new MovieRequestDto().setTitle(title).setReleaseDate(LocalDate.of(1995, 1, 1))
+                )),
+                HttpStatus.CREATED,
+                MovieResponseDto.class
+        );
+    }
+}
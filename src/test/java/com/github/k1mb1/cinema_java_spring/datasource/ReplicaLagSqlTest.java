@@ -0,0 +1,29 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import com.github.k1mb1.cinema_java_spring.utils.IntegrationTest;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@IntegrationTest
+public class ReplicaLagSqlTest {
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testLagSql_OnPrimary_ReportsNoLag() {
+        assertThat(jdbcTemplate.queryForObject(ReplicaSet.LAG_SQL, Long.class)).isZero();
+    }
+
+    @Test
+    public void testLagSql_InRecoveryWithoutWalReceiver_ReportsUnknownLag() {
+        // The test database is a primary: pretend it is in recovery, it has no WAL receiver either way
+        val sql = ReplicaSet.LAG_SQL.replace("not pg_is_in_recovery()", "false");
+
+        assertThat(jdbcTemplate.queryForObject(sql, Long.class)).isNull();
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.k1mb1.cinema_java_spring.datasource;
+
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ReplicaSetTest {
+
+    ReplicaSet.Replica first = new ReplicaSet.Replica("replica-0", mock(DataSource.class));
+    ReplicaSet.Replica second = new ReplicaSet.Replica("replica-1", mock(DataSource.class));
+    ReplicaSet replicaSet = new ReplicaSet(List.of(first, second), Duration.ofSeconds(10), new SimpleMeterRegistry());
+
+    @Test
+    void pick_BeforeFirstLagCheck_ShouldFallBackToPrimary() {
+        assertThat(replicaSet.pick(null)).isEmpty();
+    }
+
+    @Test
+    void pick_ShouldRoundRobinOverCurrentReplicas() {
+        first.record(0L);
+        second.record(200L);
+
+        val picked = List.of(replicaSet.pick(null).orElseThrow(), replicaSet.pick(null).orElseThrow());
+
+        assertThat(picked).containsExactlyInAnyOrder(first, second);
+    }
+
+    @Test
+    void pick_ShouldSkipReplicasBehindMaxLag() {
+        first.record(60_000L);
+        second.record(500L);
+
+        assertThat(replicaSet.pick(null)).contains(second);
+        assertThat(replicaSet.pick(null)).contains(second);
+        // A request cannot accept more than the configured lag
+        assertThat(replicaSet.pick(Duration.ofMinutes(5))).contains(second);
+    }
+
+    @Test
+    void pick_ShouldHonourRequestedStaleness() {
+        first.record(1_500L);
+        second.record(3_000L);
+
+        assertThat(replicaSet.pick(Duration.ofSeconds(2))).contains(first);
+        assertThat(replicaSet.pick(Duration.ZERO)).isEmpty();
+    }
+
+    @Test
+    void pick_WithZeroStaleness_ShouldReadPrimaryEvenFromCurrentReplicas() {
+        first.record(0L);
+        second.record(0L);
+
+        assertThat(replicaSet.pick(Duration.ZERO)).isEmpty();
+    }
+
+    @Test
+    void record_WhenNotStreaming_ShouldMarkReplicaUnavailable() {
+        first.record(0L);
+        first.record(null);
+
+        assertThat(replicaSet.pick(null)).isEmpty();
+        assertThat(first.lagOrNaN()).isNaN();
+    }
+
+    @Test
+    void parse_ShouldAcceptSecondsOnly() {
+        assertThat(MaxStaleness.parse("0")).isEqualTo(Duration.ZERO);
+        assertThat(MaxStaleness.parse(" 30 ")).isEqualTo(Duration.ofSeconds(30));
+        assertThatThrownBy(() -> MaxStaleness.parse("-1")).isExactlyInstanceOf(BadRequestException.class);
+        assertThatThrownBy(() -> MaxStaleness.parse("5s")).isExactlyInstanceOf(BadRequestException.class);
+    }
+}
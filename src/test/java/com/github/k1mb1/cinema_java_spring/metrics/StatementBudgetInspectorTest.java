@@ -0,0 +1,67 @@
+package com.github.k1mb1.cinema_java_spring.metrics;
+
+import lombok.val;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatementBudgetInspectorTest {
+
+    static final String SELECT_GENRES = "select g.id, g.name from movie_genres mg join genres g on g.id = mg.genre_id where mg.movie_id=?";
+
+    @AfterEach
+    void tearDown() {
+        PersistenceStats.finish();
+    }
+
+    @Test
+    void inspect_ShouldRecordStatementsOfCurrentRequest() {
+        val stats = PersistenceStats.start("MovieController#getAllMovies", 10);
+        val inspector = new StatementBudgetInspector(false);
+
+        assertThat(inspector.inspect("select m.id from movies m")).isEqualTo("select m.id from movies m");
+        inspector.inspect(SELECT_GENRES);
+        inspector.inspect(SELECT_GENRES);
+
+        assertThat(stats.getPreparedStatements()).isEqualTo(3);
+        assertThat(stats.getPreparedSql()).containsEntry(SELECT_GENRES, 2);
+    }
+
+    @Test
+    void inspect_OutsideOfRequest_ShouldOnlyReturnStatement() {
+        assertThat(new StatementBudgetInspector(true).inspect(SELECT_GENRES)).isEqualTo(SELECT_GENRES);
+    }
+
+    @Test
+    void inspect_OverBudget_ShouldOnlyFailWhenStrict() {
+        val stats = PersistenceStats.start("MovieController#getAllMovies", 1);
+        new StatementBudgetInspector(false).inspect("select 1");
+        new StatementBudgetInspector(false).inspect("select 2");
+
+        assertThat(stats.isOverBudget()).isTrue();
+        assertThatThrownBy(() -> new StatementBudgetInspector(true).inspect("select 3"))
+                .isInstanceOf(StatementBudgetExceededException.class)
+                .hasMessageContaining("MovieController#getAllMovies prepared 3 statements, over its budget of 1");
+    }
+
+    @Test
+    void repeatedQueries_ShouldReportQueriesRepeatedWithDifferentParameters() {
+        val stats = PersistenceStats.start("MovieController#getAllMovies", 100);
+        val inspector = new StatementBudgetInspector(false);
+        inspector.inspect("select m.id from movies m");
+        for (int i = 0; i < 3; i++) {
+            inspector.inspect(SELECT_GENRES);
+            // Batched writes prepare one statement per batch, they are not N+1 queries
+            inspector.inspect("insert into movies (title) values (?)");
+            // Neither are fetches of a pooled sequence, one per allocation
+            inspector.inspect("select nextval('movies_id_seq')");
+        }
+
+        assertThat(stats.repeatedQueries(3)).isEqualTo(Map.of(SELECT_GENRES, 3));
+        assertThat(stats.repeatedQueries(4)).isEmpty();
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.k1mb1.cinema_java_spring.offheap;
+
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapJsonCacheTest {
+
+    // Eight 100-byte entries fit
+    OffHeapJsonCache cache = new OffHeapJsonCache(800);
+
+    @Test
+    void get_ShouldReturnStoredBodyForSameVersionOnly() {
+        cache.put(1, "v1", body(1, 100));
+
+        assertThat(cache.get(1, "v1")).hasValue(body(1, 100));
+        assertThat(cache.get(1, "v2")).isEmpty();
+        assertThat(cache.get(2, "v1")).isEmpty();
+        assertThat(cache.hits()).isEqualTo(1);
+        assertThat(cache.misses()).isEqualTo(2);
+    }
+
+    @Test
+    void put_ShouldReplaceOtherVersion() {
+        cache.put(1, "v1", body(1, 100));
+        cache.put(1, "v2", body(2, 50));
+
+        assertThat(cache.get(1, "v1")).isEmpty();
+        assertThat(cache.get(1, "v2")).hasValue(body(2, 50));
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.usedBytes()).isEqualTo(50);
+    }
+
+    @Test
+    void put_WhenFull_ShouldEvictOldestUnreadEntries() {
+        for (int id = 1; id <= 8; id++) {
+            cache.put(id, "v", body(id, 100));
+        }
+        cache.put(9, "v", body(9, 100));
+
+        assertThat(cache.get(1, "v")).isEmpty();
+        for (int id = 2; id <= 9; id++) {
+            assertThat(cache.get(id, "v")).hasValue(body(id, 100));
+        }
+        assertThat(cache.evictions()).isEqualTo(1);
+        assertThat(cache.usedBytes()).isEqualTo(800);
+    }
+
+    @Test
+    void put_WhenFull_ShouldGiveReadEntriesSecondChance() {
+        for (int id = 1; id <= 8; id++) {
+            cache.put(id, "v", body(id, 100));
+        }
+        cache.get(1, "v");
+
+        cache.put(9, "v", body(9, 100));
+
+        assertThat(cache.get(1, "v")).hasValue(body(1, 100));
+        assertThat(cache.get(2, "v")).isEmpty();
+        assertThat(cache.get(9, "v")).hasValue(body(9, 100));
+    }
+
+    @Test
+    void put_ShouldNotSplitEntriesAcrossBufferEnd() {
+        for (int id = 1; id <= 7; id++) {
+            cache.put(id, "v", body(id, 100));
+        }
+        // 100 bytes left at the end, so this one starts over at offset 0
+        cache.put(8, "v", body(8, 90));
+        cache.put(9, "v", body(9, 100));
+
+        assertThat(cache.get(9, "v")).hasValue(body(9, 100));
+        assertThat(cache.get(8, "v")).hasValue(body(8, 90));
+    }
+
+    @Test
+    void put_ShouldSkipBodiesLargerThanAnEighthOfCapacity() {
+        cache.put(1, "v", body(1, 101));
+
+        assertThat(cache.get(1, "v")).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void invalidate_ShouldDropEntry() {
+        cache.put(1, "v", body(1, 100));
+        cache.put(2, "v", body(2, 100));
+
+        cache.invalidate(1);
+        assertThat(cache.get(1, "v")).isEmpty();
+        assertThat(cache.get(2, "v")).isPresent();
+
+        cache.invalidateAll();
+        assertThat(cache.get(2, "v")).isEmpty();
+        assertThat(cache.usedBytes()).isZero();
+    }
+
+    static byte[] body(int id, int length) {
+        val body = new byte[length];
+        val prefix = ("{\"id\":" + id + "}").getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(prefix, 0, body, 0, prefix.length);
+        return body;
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.k1mb1.cinema_java_spring.partitions;
+
+import com.github.k1mb1.cinema_java_spring.utils.IntegrationTest;
+import liquibase.integration.spring.SpringLiquibase;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseProperties;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@IntegrationTest
+public class WatchedMoviePartitionManagerTest {
+
+    @Autowired
+    WatchedMoviePartitionManager partitionManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    DataSource dataSource;
+    @Autowired
+    LiquibaseProperties liquibaseProperties;
+
+    @Test
+    public void testPartitionsCreatedAhead() {
+        val now = YearMonth.now(ZoneOffset.UTC);
+
+        assertThat(partitionManager.partitions()).contains(
+                WatchedMoviePartitionManager.partitionName(now),
+                WatchedMoviePartitionManager.partitionName(now.plusMonths(3))
+        );
+    }
+
+    @Test
+    public void testCreatePartitions_IsIdempotent() {
+        val from = YearMonth.of(2999, 1);
+
+        assertThat(partitionManager.createPartitions(from, from.plusMonths(1)))
+                .containsExactly("watched_movies_p2999_01", "watched_movies_p2999_02");
+        assertThat(partitionManager.createPartitions(from, from.plusMonths(1))).isEmpty();
+    }
+
+    @Test
+    public void testCreatePartitions_SkipsMonthWithRowsInDefaultPartition() {
+        insertWatch(insertUser("early-bird"), insertMovie("Metropolis"), "2998-05-10 20:00:00+00");
+
+        assertThat(partitionManager.createPartitions(YearMonth.of(2998, 5), YearMonth.of(2998, 5))).isEmpty();
+    }
+
+    @Test
+    public void testDetachPartitionsBefore() {
+        partitionManager.createPartitions(YearMonth.of(1990, 1), YearMonth.of(1990, 2));
+
+        assertThat(partitionManager.detachPartitionsBefore(YearMonth.of(1990, 2)))
+                .containsExactly("watched_movies_p1990_01");
+        assertThat(partitionManager.partitions())
+                .doesNotContain("watched_movies_p1990_01")
+                .contains("watched_movies_p1990_02");
+    }
+
+    @Test
+    public void testUserAndMovieStayUniqueAcrossPartitions() {
+        val userId = insertUser("unique-watcher");
+        val movieId = insertMovie("Nosferatu");
+        val now = YearMonth.now(ZoneOffset.UTC);
+        insertWatch(userId, movieId, now.atDay(1) + " 12:00:00+00");
+
+        assertThatThrownBy(() -> insertWatch(userId, movieId, now.plusMonths(1).atDay(1) + " 12:00:00+00"))
+                .isInstanceOf(DuplicateKeyException.class)
+                .hasMessageContaining("watched_movies_user_id_movie_id_unique");
+    }
+
+    @Test
+    // Liquibase commits as it goes, so the migrated schema is dropped instead of rolled back
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void testMigration_InTimeZoneAheadOfUtc_CreatesMonthAlignedPartitions() throws Exception {
+        val schema = "migration_time_zone_test";
+        try (val connection = dataSource.getConnection()) {
+            val migration = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            migration.execute("create schema " + schema);
+            try {
+                // Months there start at 10:00 UTC on the day before
+                migration.execute("set time zone 'Pacific/Kiritimati'");
+                migrate(migration.getDataSource(), schema);
+
+                migration.execute("set time zone 'UTC'");
+                val bounds = migration.queryForList("""
+                        select pg_get_expr(c.relpartbound, c.oid)
+                        from pg_inherits i
+                                 join pg_class c on c.oid = i.inhrelid
+                        where i.inhparent = '%s.watched_movies'::regclass""".formatted(schema), String.class);
+
+                assertThat(bounds)
+                        .filteredOn(bound -> !bound.equals("DEFAULT"))
+                        .hasSize(4)
+                        .allMatch(bound -> bound.matches(
+                                "FOR VALUES FROM \\('\\d{4}-\\d{2}-01 00:00:00\\+00'\\) TO \\('\\d{4}-\\d{2}-01 00:00:00\\+00'\\)"
+                        ));
+            } finally {
+                migration.execute("set time zone default");
+                migration.execute("drop schema " + schema + " cascade");
+            }
+        }
+    }
+
+    void migrate(DataSource dataSource, String schema) throws Exception {
+        val liquibase = new SpringLiquibase();
+        liquibase.setDataSource(dataSource);
+        liquibase.setChangeLog(liquibaseProperties.getChangeLog());
+        liquibase.setDefaultSchema(schema);
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    Integer insertUser(String username) {
+        return jdbcTemplate.queryForObject("insert into users (username) values (?) returning id", Integer.class, username);
+    }
+
+    Integer insertMovie(String title) {
+        return jdbcTemplate.queryForObject("insert into movies (title) values (?) returning id", Integer.class, title);
+    }
+
+    void insertWatch(Integer userId, Integer movieId, String watchedAt) {
+        jdbcTemplate.update(
+                "insert into watched_movies (user_id, movie_id, watched_at) values (?, ?, ?::timestamptz)",
+                userId, movieId, watchedAt
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.k1mb1.cinema_java_spring.recommendations;
+
+import com.github.k1mb1.cinema_java_spring.dtos.movie.SimilarMovieDto;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ItemSimilarityTest {
+
+    /**
+     * Users 1-3 watched movies 10 and 20, users 1-2 also 30, user 4 only 30 and 40.
+     */
+    static final int[] MOVIES = {10, 10, 10, 20, 20, 20, 30, 30, 30, 40};
+    static final int[] USERS = {1, 2, 3, 1, 2, 3, 1, 2, 4, 4};
+
+    @Test
+    void compute_ShouldRankByCosineOfAudiences() {
+        val index = compute(new ItemSimilarity(20, 1));
+
+        val similar = index.find(10, 10).orElseThrow();
+
+        assertThat(similar).extracting(SimilarMovieDto::getMovieId).containsExactly(20, 30);
+        assertThat(similar.get(0).getScore()).isCloseTo(1.0, within(1e-6));
+        assertThat(similar.get(1).getScore()).isCloseTo(2 / 3.0, within(1e-6));
+        assertThat(index.find(40, 10).orElseThrow()).extracting(SimilarMovieDto::getMovieId).containsExactly(30);
+    }
+
+    @Test
+    void compute_ShouldIgnorePairsBelowMinCoWatchers() {
+        val index = compute(new ItemSimilarity(20, 2));
+
+        assertThat(index.find(30, 10).orElseThrow()).extracting(SimilarMovieDto::getMovieId).containsExactly(10, 20);
+        assertThat(index.find(40, 10).orElseThrow()).isEmpty();
+    }
+
+    @Test
+    void compute_ShouldKeepOnlyTopNeighbours() {
+        val index = compute(new ItemSimilarity(1, 1));
+
+        assertThat(index.find(30, 10).orElseThrow()).extracting(SimilarMovieDto::getMovieId).containsExactly(10);
+    }
+
+    @Test
+    void find_UnknownMovie_ShouldBeEmpty() {
+        assertThat(compute(new ItemSimilarity(20, 1)).find(99, 10)).isEmpty();
+    }
+
+    @Test
+    void compute_InParallel_ShouldMatchSequentialResult() {
+        val movies = 1_000;
+        val movieIds = new int[movies * 5];
+        val userIds = new int[movies * 5];
+        for (int movie = 0, row = 0; movie < movies; movie++) {
+            for (int viewer = 0; viewer < 5; viewer++, row++) {
+                movieIds[row] = movie + 1;
+                userIds[row] = (movie * 7 + viewer * 13) % 300;
+            }
+        }
+        val matrix = CoWatchMatrix.of(movieIds, userIds, movieIds.length);
+        val similarity = new ItemSimilarity(5, 1);
+
+        try (val sequential = new ForkJoinPool(1); val parallel = new ForkJoinPool(4)) {
+            val expected = similarity.compute(matrix, sequential);
+            val actual = similarity.compute(matrix, parallel);
+
+            assertThat(actual.neighbours()).isDeepEqualTo(expected.neighbours());
+            assertThat(actual.scores()).isDeepEqualTo(expected.scores());
+        }
+    }
+
+    static SimilarityIndex compute(ItemSimilarity similarity) {
+        try (val pool = new ForkJoinPool(2)) {
+            return similarity.compute(CoWatchMatrix.of(MOVIES, USERS, MOVIES.length), pool);
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.github.k1mb1.cinema_java_spring.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.k1mb1.cinema_java_spring.dtos.country.CountryRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.country.CountryResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.Country;
 import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
 import com.github.k1mb1.cinema_java_spring.mappers.CountryMapper;
+import com.github.k1mb1.cinema_java_spring.offheap.MovieJsonCache;
 import com.github.k1mb1.cinema_java_spring.repositories.CountryRepository;
+import com.github.k1mb1.cinema_java_spring.snapshots.CountrySnapshotCache;
+import com.github.k1mb1.cinema_java_spring.snapshots.ReferenceSnapshot;
 import lombok.val;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,6 +36,12 @@ class CountryServiceTest {
     @Mock
     CountryMapper countryMapper;
 
+    @Mock
+    CountrySnapshotCache countrySnapshotCache;
+
+    @Mock
+    MovieJsonCache movieJsonCache;
+
     @InjectMocks
     CountryService countryService;
 
@@ -76,12 +86,12 @@ class CountryServiceTest {
         assertThat(result.getName()).isEqualTo(countryResponseDto.getName());
 
         verify(countryRepository).save(country);
+        verify(countrySnapshotCache).reloadAfterCommit();
     }
 
     @Test
     void getCountryById_WithValidId_ShouldReturnCountryResponseDto() {
-        when(countryRepository.findById(VALID_ID)).thenReturn(Optional.of(country));
-        when(countryMapper.toDto(country)).thenReturn(countryResponseDto);
+        when(countrySnapshotCache.findById(VALID_ID)).thenReturn(Optional.of(countryResponseDto));
 
         val result = countryService.getCountryById(VALID_ID);
 
@@ -89,31 +99,32 @@ class CountryServiceTest {
         assertThat(result.getId()).isEqualTo(countryResponseDto.getId());
         assertThat(result.getName()).isEqualTo(countryResponseDto.getName());
 
-        verify(countryRepository).findById(VALID_ID);
+        verify(countryRepository, never()).findById(VALID_ID);
     }
 
     @Test
     void getCountryById_WithInvalidId_ShouldThrowEntityNotFoundException() {
-        when(countryRepository.findById(INVALID_ID)).thenReturn(Optional.empty());
+        when(countrySnapshotCache.findById(INVALID_ID)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> countryService.getCountryById(INVALID_ID))
                 .isExactlyInstanceOf(NotFoundException.class);
 
-        verify(countryRepository).findById(INVALID_ID);
+        verify(countrySnapshotCache).findById(INVALID_ID);
     }
 
     @Test
     void getAllCountries_ShouldReturnListOfCountryResponseDto() {
-        when(countryRepository.findAll()).thenReturn(List.of(country));
-        when(countryMapper.toDto(country)).thenReturn(countryResponseDto);
+        when(countrySnapshotCache.read())
+                .thenReturn(ReferenceSnapshot.of(List.of(countryResponseDto), CountryResponseDto::getId, new ObjectMapper().findAndRegisterModules()));
 
-        val result = countryService.getAllCountries();
+        val result = countryService.getAllCountries(null, null);
 
         assertThat(result).isNotNull();
-        assertThat(result).hasSize(1);
-        assertThat(result.getFirst().getId()).isEqualTo(countryResponseDto.getId());
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getNextCursor()).isNull();
+        assertThat(result.getItems().getFirst().getId()).isEqualTo(countryResponseDto.getId());
 
-        verify(countryRepository).findAll();
+        verify(countryRepository, never()).findAll();
     }
 
     @Test
@@ -148,6 +159,7 @@ class CountryServiceTest {
         assertThat(result.getName()).isEqualTo(updatedCountry.getName());
 
         verify(countryRepository).save(any(Country.class));
+        verify(countrySnapshotCache).reloadAfterCommit();
     }
 
     @Test
@@ -163,21 +175,21 @@ class CountryServiceTest {
 
     @Test
     void deleteCountry_WithValidId_ShouldDeleteCountry() {
-        when(countryRepository.existsById(VALID_ID)).thenReturn(true);
-        doNothing().when(countryRepository).deleteById(VALID_ID);
+        when(countryRepository.deleteRowById(VALID_ID)).thenReturn(1);
 
         countryService.deleteCountry(VALID_ID);
 
-        verify(countryRepository).deleteById(VALID_ID);
+        verify(countryRepository).deleteRowById(VALID_ID);
+        verify(countrySnapshotCache).reloadAfterCommit();
     }
 
     @Test
     void deleteCountry_WithInvalidId_ShouldThrowEntityNotFoundException() {
-        when(countryRepository.existsById(INVALID_ID)).thenReturn(false);
+        when(countryRepository.deleteRowById(INVALID_ID)).thenReturn(0);
 
         assertThatThrownBy(() -> countryService.deleteCountry(INVALID_ID))
                 .isExactlyInstanceOf(NotFoundException.class);
 
-        verify(countryRepository, never()).deleteById(INVALID_ID);
+        verify(countrySnapshotCache, never()).reloadAfterCommit();
     }
 }
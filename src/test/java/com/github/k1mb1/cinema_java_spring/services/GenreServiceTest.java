@@ -1,11 +1,17 @@
 package com.github.k1mb1.cinema_java_spring.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
 import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.Genre;
 import com.github.k1mb1.cinema_java_spring.mappers.GenreMapper;
+import com.github.k1mb1.cinema_java_spring.offheap.MovieJsonCache;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
 import com.github.k1mb1.cinema_java_spring.repositories.GenreRepository;
+import com.github.k1mb1.cinema_java_spring.snapshots.GenreSnapshotCache;
+import com.github.k1mb1.cinema_java_spring.snapshots.ReferenceSnapshot;
 import lombok.val;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -32,6 +38,15 @@ class GenreServiceTest {
     @Mock
     GenreMapper genreMapper;
 
+    @Mock
+    GenreSnapshotCache genreSnapshotCache;
+
+    @Mock
+    MovieJsonCache movieJsonCache;
+
+    @Mock
+    MergePatch mergePatch;
+
     @InjectMocks
     GenreService genreService;
 
@@ -76,12 +91,12 @@ class GenreServiceTest {
         assertThat(result.getName()).isEqualTo(genreResponseDto.getName());
 
         verify(genreRepository).save(genre);
+        verify(genreSnapshotCache).reloadAfterCommit();
     }
 
     @Test
     void getGenreById_WithValidId_ShouldReturnGenreResponseDto() {
-        when(genreRepository.findById(VALID_ID)).thenReturn(Optional.of(genre));
-        when(genreMapper.toDto(genre)).thenReturn(genreResponseDto);
+        when(genreSnapshotCache.findById(VALID_ID)).thenReturn(Optional.of(genreResponseDto));
 
         val result = genreService.getGenreById(VALID_ID);
 
@@ -89,31 +104,64 @@ class GenreServiceTest {
         assertThat(result.getId()).isEqualTo(genreResponseDto.getId());
         assertThat(result.getName()).isEqualTo(genreResponseDto.getName());
 
-        verify(genreRepository).findById(VALID_ID);
+        verify(genreRepository, never()).findById(VALID_ID);
     }
 
     @Test
     void getGenreById_WithInvalidId_ShouldThrowEntityNotFoundException() {
-        when(genreRepository.findById(INVALID_ID)).thenReturn(Optional.empty());
+        when(genreSnapshotCache.findById(INVALID_ID)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> genreService.getGenreById(INVALID_ID))
                 .isExactlyInstanceOf(NotFoundException.class);
 
-        verify(genreRepository).findById(INVALID_ID);
+        verify(genreSnapshotCache).findById(INVALID_ID);
     }
 
     @Test
     void getAllGenres_ShouldReturnListOfGenreResponseDto() {
-        when(genreRepository.findAll()).thenReturn(List.of(genre));
-        when(genreMapper.toDto(genre)).thenReturn(genreResponseDto);
+        when(genreSnapshotCache.read())
+                .thenReturn(ReferenceSnapshot.of(List.of(genreResponseDto), GenreResponseDto::getId, new ObjectMapper().findAndRegisterModules()));
 
-        val result = genreService.getAllGenres();
+        val result = genreService.getAllGenres(null, null);
 
         assertThat(result).isNotNull();
-        assertThat(result).hasSize(1);
-        assertThat(result.getFirst().getId()).isEqualTo(genreResponseDto.getId());
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getNextCursor()).isNull();
+        assertThat(result.getItems().getFirst().getId()).isEqualTo(genreResponseDto.getId());
+
+        verify(genreRepository, never()).findAll();
+    }
+
+    @Test
+    void patchGenre_ShouldUpdateChangedGenre() {
+        val patch = JsonNodeFactory.instance.objectNode().put("name", "Thriller");
+        val patched = GenreRequestDto.builder().name("Thriller").build();
+        when(genreRepository.findById(VALID_ID)).thenReturn(Optional.of(genre));
+        when(genreMapper.toRequestDto(genre)).thenReturn(genreRequestDto);
+        when(mergePatch.apply(patch, genreRequestDto)).thenReturn(patched);
+        when(genreRepository.saveAndFlush(genre)).thenReturn(genre);
+        when(genreMapper.toDto(genre)).thenReturn(genreResponseDto);
+
+        genreService.patchGenre(VALID_ID, patch);
+
+        verify(genreMapper).updateEntity(patched, genre);
+        verify(genreSnapshotCache).reloadAfterCommit();
+        verify(movieJsonCache).invalidateAll();
+    }
+
+    @Test
+    void patchGenre_WithoutChanges_ShouldNotWrite() {
+        val patch = JsonNodeFactory.instance.objectNode().put("name", genre.getName());
+        when(genreRepository.findById(VALID_ID)).thenReturn(Optional.of(genre));
+        when(genreMapper.toRequestDto(genre)).thenReturn(genreRequestDto);
+        when(mergePatch.apply(patch, genreRequestDto)).thenReturn(GenreRequestDto.builder().name(genre.getName()).build());
+        when(genreMapper.toDto(genre)).thenReturn(genreResponseDto);
+
+        assertThat(genreService.patchGenre(VALID_ID, patch)).isEqualTo(genreResponseDto);
 
-        verify(genreRepository).findAll();
+        verify(genreRepository, never()).saveAndFlush(any());
+        verify(genreSnapshotCache, never()).reloadAfterCommit();
+        verify(movieJsonCache, never()).invalidateAll();
     }
 
     @Test
@@ -148,6 +196,7 @@ class GenreServiceTest {
         assertThat(result.getName()).isEqualTo(updateRequestDto.getName());
 
         verify(genreRepository).save(any(Genre.class));
+        verify(genreSnapshotCache).reloadAfterCommit();
     }
 
     @Test
@@ -163,22 +212,22 @@ class GenreServiceTest {
 
     @Test
     void deleteGenre_WithValidId_ShouldDeleteGenre() {
-        when(genreRepository.existsById(VALID_ID)).thenReturn(true);
-        doNothing().when(genreRepository).deleteById(VALID_ID);
+        when(genreRepository.deleteRowById(VALID_ID)).thenReturn(1);
 
         genreService.deleteGenre(VALID_ID);
 
-        verify(genreRepository).deleteById(VALID_ID);
+        verify(genreRepository).deleteRowById(VALID_ID);
+        verify(genreSnapshotCache).reloadAfterCommit();
     }
 
     @Test
     void deleteGenre_WithInvalidId_ShouldThrowEntityNotFoundException() {
-        when(genreRepository.existsById(INVALID_ID)).thenReturn(false);
+        when(genreRepository.deleteRowById(INVALID_ID)).thenReturn(0);
 
         // Act & Assert
         assertThatThrownBy(() -> genreService.deleteGenre(INVALID_ID))
                 .isExactlyInstanceOf(NotFoundException.class);
 
-        verify(genreRepository, never()).deleteById(INVALID_ID);
+        verify(genreSnapshotCache, never()).reloadAfterCommit();
     }
 }
@@ -1,33 +1,60 @@
 package com.github.k1mb1.cinema_java_spring.services;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.github.k1mb1.cinema_java_spring.coalescing.SingleFlight;
+import com.github.k1mb1.cinema_java_spring.conditional.ResourceVersion;
+import com.github.k1mb1.cinema_java_spring.dtos.country.CountryResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.genre.GenreResponseDto;
+import com.github.k1mb1.cinema_java_spring.errors.BadRequestException;
 import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
+import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieFilterDto;
 import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.movie.MovieResponseDto;
 import com.github.k1mb1.cinema_java_spring.entities.Country;
 import com.github.k1mb1.cinema_java_spring.entities.Genre;
 import com.github.k1mb1.cinema_java_spring.entities.Movie;
 import com.github.k1mb1.cinema_java_spring.mappers.MovieMapper;
-import com.github.k1mb1.cinema_java_spring.repositories.CountryRepository;
-import com.github.k1mb1.cinema_java_spring.repositories.GenreRepository;
+import com.github.k1mb1.cinema_java_spring.multiget.MultiGet;
+import com.github.k1mb1.cinema_java_spring.offheap.MovieJsonCache;
+import com.github.k1mb1.cinema_java_spring.pagination.Keyset;
+import com.github.k1mb1.cinema_java_spring.patch.MergePatch;
+import com.github.k1mb1.cinema_java_spring.repositories.EntityVersion;
 import com.github.k1mb1.cinema_java_spring.repositories.MovieRepository;
+import com.github.k1mb1.cinema_java_spring.snapshots.CountrySnapshotCache;
+import com.github.k1mb1.cinema_java_spring.snapshots.GenreSnapshotCache;
+import com.github.k1mb1.cinema_java_spring.snapshots.ReferenceSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.val;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import static com.github.k1mb1.cinema_java_spring.repositories.DirectDeleteRepository.MAX_IDS_PER_DELETE;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -37,14 +64,30 @@ class MovieServiceTest {
     MovieRepository movieRepository;
 
     @Mock
-    GenreRepository genreRepository;
+    GenreSnapshotCache genreSnapshotCache;
 
     @Mock
-    CountryRepository countryRepository;
+    CountrySnapshotCache countrySnapshotCache;
+
+    @Mock
+    MovieJsonCache movieJsonCache;
 
     @Mock
     MovieMapper movieMapper;
 
+    @Mock
+    Validator validator;
+
+    @Mock
+    EntityManager entityManager;
+
+    @Mock
+    MergePatch mergePatch;
+
+    @Spy
+    SingleFlight<ResourceVersion, byte[]> movieReads =
+            new SingleFlight<>("movie", TransactionOperations.withoutTransaction(), new SimpleMeterRegistry());
+
     @InjectMocks
     MovieService movieService;
 
@@ -120,8 +163,8 @@ class MovieServiceTest {
     @Test
     void createMovie_ShouldReturnMovieResponseDto() {
         when(movieMapper.toEntity(movieRequestDto)).thenReturn(movie);
-        when(genreRepository.findAllById(any())).thenReturn(List.of(genre));
-        when(countryRepository.findAllById(any())).thenReturn(List.of(country));
+        when(genreSnapshotCache.resolve(any())).thenReturn(Set.of(genre));
+        when(countrySnapshotCache.resolve(any())).thenReturn(Set.of(country));
         when(movieRepository.save(any(Movie.class))).thenReturn(movie);
         when(movieMapper.toDto(movie)).thenReturn(movieResponseDto);
 
@@ -134,6 +177,44 @@ class MovieServiceTest {
         verify(movieRepository).save(any(Movie.class));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void createMovies_ShouldSaveValidItemsAndReportInvalidOnes() {
+        val invalidRequest = MovieRequestDto.builder().title("").build();
+        val violation = (ConstraintViolation<MovieRequestDto>) mock(ConstraintViolation.class);
+        when(violation.getMessage()).thenReturn("Title cannot be blank");
+        when(validator.validate(movieRequestDto)).thenReturn(Set.of());
+        when(validator.validate(invalidRequest)).thenReturn(Set.of(violation));
+        when(genreSnapshotCache.resolve(Set.of(VALID_ID))).thenReturn(Set.of(genre));
+        when(countrySnapshotCache.resolve(Set.of(VALID_ID))).thenReturn(Set.of(country));
+        when(movieMapper.toEntity(movieRequestDto)).thenReturn(movie);
+
+        val result = movieService.createMovies(List.of(movieRequestDto, invalidRequest));
+
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getItems().get(0).getId()).isEqualTo(movie.getId());
+        assertThat(result.getItems().get(1).getError()).isEqualTo("Title cannot be blank");
+        assertThat(movie.getGenres()).containsExactly(genre);
+        assertThat(movie.getCountries()).containsExactly(country);
+
+        verify(genreSnapshotCache).resolve(any());
+        verify(movieRepository).saveAll(List.of(movie));
+        // Countries go in a second flush, so that the join rows of each table are batched together
+        verify(entityManager, times(2)).flush();
+        verify(entityManager).clear();
+    }
+
+    @Test
+    void createMovies_WithTooManyItems_ShouldThrowBadRequestException() {
+        val requests = Collections.nCopies(MovieService.BULK_MAX_SIZE + 1, movieRequestDto);
+
+        assertThatThrownBy(() -> movieService.createMovies(requests))
+                .isInstanceOf(BadRequestException.class);
+
+        verifyNoInteractions(movieRepository);
+    }
+
     @Test
     void getMovieById_WithValidId_ShouldReturnMovieResponseDto() {
         when(movieRepository.findById(VALID_ID)).thenReturn(Optional.of(movie));
@@ -160,15 +241,126 @@ class MovieServiceTest {
 
     @Test
     void getAllMovies_ShouldReturnListOfMovieResponseDto() {
-        when(movieRepository.findAll()).thenReturn(List.of(movie));
+        when(movieRepository.findVersions(any(), eq(Limit.of(Keyset.DEFAULT_LIMIT + 1))))
+                .thenReturn(List.of(new EntityVersion(VALID_ID, movie.getUpdateAt())));
+        stubReferenceSnapshots();
+        when(movieRepository.findByIdInOrderByIdAsc(List.of(VALID_ID))).thenReturn(List.of(movie));
         when(movieMapper.toDto(movie)).thenReturn(movieResponseDto);
 
-        val result = movieService.getAllMovies();
+        val result = movieService.getAllMovies(new MovieFilterDto(), null, null);
 
         assertThat(result).isNotNull();
-        assertThat(result).hasSize(1);
-        assertThat(result.getFirst().getId()).isEqualTo(movieResponseDto.getId());
-        verify(movieRepository).findAll();
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getNextCursor()).isNull();
+        assertThat(result.getItems().getFirst().getId()).isEqualTo(movieResponseDto.getId());
+        verify(movieRepository).findByIdInOrderByIdAsc(List.of(VALID_ID));
+        verify(movieRepository, never()).findAll();
+    }
+
+    @Test
+    void getMoviesByIds_ShouldKeepRequestOrderAndReportMissing() {
+        val other = Movie.builder().id(2).title("Other").build();
+        val otherDto = MovieResponseDto.builder().id(2).title("Other").build();
+        when(movieRepository.findByIdInOrderByIdAsc(Set.of(2, INVALID_ID, VALID_ID))).thenReturn(List.of(movie, other));
+        when(movieMapper.toDto(movie)).thenReturn(movieResponseDto);
+        when(movieMapper.toDto(other)).thenReturn(otherDto);
+
+        val result = movieService.getMoviesByIds(List.of(2, INVALID_ID, VALID_ID, 2));
+
+        assertThat(result.getItems()).containsExactly(otherDto, movieResponseDto);
+        assertThat(result.getMissing()).containsExactly(INVALID_ID);
+        verify(movieRepository).findByIdInOrderByIdAsc(any());
+    }
+
+    @Test
+    void getMoviesByIds_WithTooManyIds_ShouldThrowBadRequestException() {
+        val ids = IntStream.rangeClosed(1, MultiGet.MAX_IDS + 1).boxed().toList();
+
+        assertThatThrownBy(() -> movieService.getMoviesByIds(ids))
+                .isExactlyInstanceOf(BadRequestException.class);
+
+        verifyNoInteractions(movieRepository);
+    }
+
+    @Test
+    void getMovieById_WhenClientHasCurrentVersion_ShouldReturnNotModified() {
+        when(movieRepository.findUpdatedAtById(VALID_ID)).thenReturn(Optional.of(movie.getUpdateAt()));
+        stubReferenceSnapshots();
+
+        val result = movieService.getMovieJsonById(VALID_ID, version -> true);
+
+        assertThat(result.isNotModified()).isTrue();
+        assertThat(result.version().etag()).startsWith("\"");
+        verify(movieRepository, never()).findById(any());
+        verifyNoInteractions(movieMapper, movieJsonCache, movieReads);
+    }
+
+    @Test
+    void getMovieById_WhenClientIsStale_ShouldLoadAndCacheBody() {
+        val body = new byte[]{'{', '}'};
+        when(movieRepository.findUpdatedAtById(VALID_ID)).thenReturn(Optional.of(movie.getUpdateAt()));
+        stubReferenceSnapshots();
+        when(movieJsonCache.get(eq(VALID_ID), anyString())).thenReturn(Optional.empty());
+        when(movieJsonCache.get(eq(VALID_ID), anyString(), any())).thenAnswer(invocation -> {
+            invocation.<Supplier<MovieResponseDto>>getArgument(2).get();
+            return body;
+        });
+        when(movieRepository.findById(VALID_ID)).thenReturn(Optional.of(movie));
+        when(movieMapper.toDto(movie)).thenReturn(movieResponseDto);
+
+        val result = movieService.getMovieJsonById(VALID_ID, version -> false);
+
+        assertThat(result.body()).isSameAs(body);
+        verify(movieReads).load(eq(result.version()), any());
+        verify(movieRepository).findById(VALID_ID);
+    }
+
+    @Test
+    void getMovieById_WhenVersionLookupFindsNothing_ShouldThrowNotFound() {
+        when(movieRepository.findUpdatedAtById(INVALID_ID)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> movieService.getMovieJsonById(INVALID_ID, version -> false))
+                .isExactlyInstanceOf(NotFoundException.class);
+
+        verify(movieRepository, never()).findById(any());
+    }
+
+    @Test
+    void searchMovies_ShouldKeepRankOrder() {
+        val other = Movie.builder().id(VALID_ID + 1).title("Other Movie").build();
+        val otherResponseDto = MovieResponseDto.builder().id(other.getId()).title(other.getTitle()).build();
+        when(movieRepository.search("movie", Float.POSITIVE_INFINITY, 0, Keyset.DEFAULT_LIMIT + 1))
+                .thenReturn(List.of(searchHit(other.getId(), 0.9f), searchHit(VALID_ID, 0.5f)));
+        when(movieRepository.findByIdInOrderByIdAsc(List.of(other.getId(), VALID_ID))).thenReturn(List.of(movie, other));
+        when(movieMapper.toDto(movie)).thenReturn(movieResponseDto);
+        when(movieMapper.toDto(other)).thenReturn(otherResponseDto);
+
+        val result = movieService.searchMovies("movie", null, null);
+
+        assertThat(result.getItems()).containsExactly(otherResponseDto, movieResponseDto);
+        assertThat(result.getNextCursor()).isNull();
+    }
+
+    @Test
+    void searchMovies_WhenHitWasDeleted_ShouldSkipItButKeepCursor() {
+        val deletedId = VALID_ID + 1;
+        when(movieRepository.search("movie", Float.POSITIVE_INFINITY, 0, 3))
+                .thenReturn(List.of(searchHit(VALID_ID, 0.9f), searchHit(deletedId, 0.5f), searchHit(VALID_ID + 2, 0.1f)));
+        when(movieRepository.findByIdInOrderByIdAsc(List.of(VALID_ID, deletedId, VALID_ID + 2))).thenReturn(List.of(movie));
+        when(movieMapper.toDto(movie)).thenReturn(movieResponseDto);
+
+        val result = movieService.searchMovies("movie", null, 2);
+
+        assertThat(result.getItems()).containsExactly(movieResponseDto);
+        assertThat(Keyset.decodeRanked(result.getNextCursor()).id()).isEqualTo(deletedId);
+    }
+
+    @Test
+    void searchMovies_WithBlankQuery_ShouldThrowBadRequestException() {
+        assertThatThrownBy(() -> movieService.searchMovies(" ", null, null))
+                .isInstanceOf(BadRequestException.class);
+
+        verifyNoInteractions(movieRepository);
     }
 
     @Test
@@ -207,8 +399,8 @@ class MovieServiceTest {
 
         when(movieRepository.findById(movie.getId())).thenReturn(Optional.of(movie));
         when(movieMapper.toEntity(updateRequestDto)).thenReturn(updatedMovie);
-        when(genreRepository.findAllById(any())).thenReturn(List.of(genre));
-        when(countryRepository.findAllById(any())).thenReturn(List.of(country));
+        when(genreSnapshotCache.resolve(any())).thenReturn(Set.of(genre));
+        when(countrySnapshotCache.resolve(any())).thenReturn(Set.of(country));
         when(movieRepository.save(any(Movie.class))).thenReturn(updatedMovie);
         when(movieMapper.toDto(updatedMovie)).thenReturn(updatedResponseDto);
 
@@ -232,23 +424,105 @@ class MovieServiceTest {
         verify(movieRepository, never()).save(any(Movie.class));
     }
 
+    @Test
+    void patchMovie_ShouldSyncGenresByIdAndKeepUnchangedOnes() {
+        val drama = Genre.builder().id(2).name("Drama").build();
+        val heist = Genre.builder().id(3).name("Heist").build();
+        movie.setGenres(new HashSet<>(Set.of(genre, drama))).setCountries(new HashSet<>(Set.of(country)));
+        val current = movieRequestDto.toBuilder().genreIds(Set.of(VALID_ID, 2)).build();
+        val patched = current.toBuilder().title("Patched").genreIds(Set.of(2, 3)).build();
+        val patch = JsonNodeFactory.instance.objectNode();
+        when(movieRepository.findById(VALID_ID)).thenReturn(Optional.of(movie));
+        when(movieMapper.toRequestDto(movie)).thenReturn(current);
+        when(mergePatch.apply(patch, current)).thenReturn(patched);
+        when(genreSnapshotCache.resolve(List.of(3))).thenReturn(Set.of(heist));
+        when(movieRepository.saveAndFlush(movie)).thenReturn(movie);
+        when(movieMapper.toDto(movie)).thenReturn(movieResponseDto);
+
+        movieService.patchMovie(VALID_ID, patch);
+
+        assertThat(movie.getGenres()).containsExactlyInAnyOrder(drama, heist);
+        assertThat(movie.getCountries()).containsExactly(country);
+        verify(movieMapper).updateEntity(patched, movie);
+        verify(countrySnapshotCache, never()).resolve(any());
+        verify(movieJsonCache).invalidate(VALID_ID);
+    }
+
+    @Test
+    void patchMovie_WithoutChanges_ShouldNotWrite() {
+        val patch = JsonNodeFactory.instance.objectNode();
+        when(movieRepository.findById(VALID_ID)).thenReturn(Optional.of(movie));
+        when(movieMapper.toRequestDto(movie)).thenReturn(movieRequestDto);
+        when(mergePatch.apply(patch, movieRequestDto)).thenReturn(movieRequestDto.toBuilder().build());
+        when(movieMapper.toDto(movie)).thenReturn(movieResponseDto);
+
+        val result = movieService.patchMovie(VALID_ID, patch);
+
+        assertThat(result).isEqualTo(movieResponseDto);
+        verify(movieMapper, never()).updateEntity(any(), any());
+        verify(movieRepository, never()).saveAndFlush(any());
+        verify(movieJsonCache, never()).invalidate(anyInt());
+    }
+
     @Test
     void deleteMovie_WithValidId_ShouldDeleteMovie() {
-        when(movieRepository.existsById(VALID_ID)).thenReturn(true);
-        doNothing().when(movieRepository).deleteById(VALID_ID);
+        when(movieRepository.deleteRowById(VALID_ID)).thenReturn(1);
 
         movieService.deleteMovie(VALID_ID);
 
-        verify(movieRepository).deleteById(VALID_ID);
+        verify(movieRepository).deleteRowById(VALID_ID);
+        verify(movieJsonCache).invalidate(VALID_ID);
     }
 
     @Test
     void deleteMovie_WithInvalidId_ShouldThrowEntityNotFoundException() {
-        when(movieRepository.existsById(INVALID_ID)).thenReturn(false);
+        when(movieRepository.deleteRowById(INVALID_ID)).thenReturn(0);
 
         assertThatThrownBy(() -> movieService.deleteMovie(INVALID_ID))
                 .isExactlyInstanceOf(NotFoundException.class);
 
-        verify(movieRepository, never()).deleteById(INVALID_ID);
+        verify(movieJsonCache, never()).invalidate(anyInt());
+    }
+
+    @Test
+    void deleteMovies_ShouldDeleteInOneStatement() {
+        val ids = Set.of(1, 2, INVALID_ID);
+        when(movieRepository.deleteRowsByIdIn(ids)).thenReturn(2);
+
+        assertThat(movieService.deleteMovies(ids).getDeleted()).isEqualTo(2);
+
+        verify(movieRepository, never()).deleteRowById(any());
+        ids.forEach(id -> verify(movieJsonCache).invalidate(id));
+    }
+
+    @Test
+    void deleteMovies_WithTooManyIds_ShouldThrowBadRequestException() {
+        val ids = IntStream.rangeClosed(1, MAX_IDS_PER_DELETE + 1).boxed().collect(Collectors.toSet());
+
+        assertThatThrownBy(() -> movieService.deleteMovies(ids))
+                .isExactlyInstanceOf(BadRequestException.class);
+
+        verifyNoInteractions(movieRepository);
+    }
+
+    static MovieRepository.SearchHit searchHit(Integer id, float rank) {
+        return new MovieRepository.SearchHit() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public Float getRank() {
+                return rank;
+            }
+        };
+    }
+
+    void stubReferenceSnapshots() {
+        when(genreSnapshotCache.read())
+                .thenReturn(ReferenceSnapshot.of(List.<GenreResponseDto>of(), GenreResponseDto::getId, new ObjectMapper()));
+        when(countrySnapshotCache.read())
+                .thenReturn(ReferenceSnapshot.of(List.<CountryResponseDto>of(), CountryResponseDto::getId, new ObjectMapper()));
     }
 }
@@ -3,9 +3,13 @@ package com.github.k1mb1.cinema_java_spring.services;
 import com.github.k1mb1.cinema_java_spring.errors.NotFoundException;
 import com.github.k1mb1.cinema_java_spring.dtos.user.UserRequestDto;
 import com.github.k1mb1.cinema_java_spring.dtos.user.UserResponseDto;
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchHistoryItemDto;
 import com.github.k1mb1.cinema_java_spring.entities.User;
 import com.github.k1mb1.cinema_java_spring.mappers.UserMapper;
+import com.github.k1mb1.cinema_java_spring.pagination.Keyset;
+import com.github.k1mb1.cinema_java_spring.pagination.TimeCursor;
 import com.github.k1mb1.cinema_java_spring.repositories.UserRepository;
+import com.github.k1mb1.cinema_java_spring.repositories.WatchedMovieRepository;
 import lombok.val;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -13,14 +17,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +42,12 @@ class UserServiceTest {
     @Mock
     UserMapper userMapper;
 
+    @Mock
+    WatchedMovieRepository watchedMovieRepository;
+
+    @Mock
+    JdbcTemplate jdbcTemplate;
+
     @InjectMocks
     UserService userService;
 
@@ -104,16 +120,38 @@ class UserServiceTest {
 
     @Test
     void getAllUsers_ShouldReturnListOfUserResponseDto() {
-        when(userRepository.findAll()).thenReturn(List.of(user));
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(Keyset.DEFAULT_LIMIT + 1)))
+                .thenReturn(List.of(user));
         when(userMapper.toDto(user)).thenReturn(userResponseDto);
 
-        val result = userService.getAllUsers();
+        val result = userService.getAllUsers(null, null);
 
         assertThat(result).isNotNull();
-        assertThat(result).hasSize(1);
-        assertThat(result.getFirst().getId()).isEqualTo(userResponseDto.getId());
+        assertThat(result.getItems()).hasSize(1);
+        assertThat(result.getNextCursor()).isNull();
+        assertThat(result.getItems().getFirst().getId()).isEqualTo(userResponseDto.getId());
+
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(0, Limit.of(Keyset.DEFAULT_LIMIT + 1));
+    }
+
+    @Test
+    void getUsersByIds_ShouldKeepRequestOrderAndReportMissing() {
+        when(userRepository.findAllById(Set.of(INVALID_ID, VALID_ID))).thenReturn(List.of(user));
+        when(userMapper.toDto(user)).thenReturn(userResponseDto);
+
+        val result = userService.getUsersByIds(List.of(INVALID_ID, VALID_ID));
+
+        assertThat(result.getItems()).containsExactly(userResponseDto);
+        assertThat(result.getMissing()).containsExactly(INVALID_ID);
+    }
+
+    @Test
+    void getUsersByIds_WithoutIds_ShouldNotQuery() {
+        val result = userService.getUsersByIds(List.of());
 
-        verify(userRepository).findAll();
+        assertThat(result.getItems()).isEmpty();
+        assertThat(result.getMissing()).isEmpty();
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -163,21 +201,49 @@ class UserServiceTest {
 
     @Test
     void deleteUser_WithValidId_ShouldDeleteUser() {
-        when(userRepository.existsById(VALID_ID)).thenReturn(true);
-        doNothing().when(userRepository).deleteById(VALID_ID);
+        when(userRepository.deleteRowById(VALID_ID)).thenReturn(1);
 
         userService.deleteUser(VALID_ID);
 
-        verify(userRepository).deleteById(VALID_ID);
+        verify(userRepository).deleteRowById(VALID_ID);
     }
 
     @Test
     void deleteUser_WithInvalidId_ShouldThrowEntityNotFoundException() {
-        when(userRepository.existsById(INVALID_ID)).thenReturn(false);
+        when(userRepository.deleteRowById(INVALID_ID)).thenReturn(0);
 
         assertThatThrownBy(() -> userService.deleteUser(INVALID_ID))
                 .isExactlyInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void assertUserExists_WithInvalidId_ShouldThrowNotFoundException() {
+        when(userRepository.existsById(INVALID_ID)).thenReturn(false);
+
+        assertThatThrownBy(() -> userService.assertUserExists(INVALID_ID))
+                .isExactlyInstanceOf(NotFoundException.class);
+    }
+
+    @Test
+    void getWatchHistory_ShouldReturnNewestFirstPage() {
+        val newest = new WatchHistoryItemDto(2, 20, "Psycho", LocalDateTime.of(2024, 1, 2, 20, 0));
+        val oldest = new WatchHistoryItemDto(1, 10, "Vertigo", LocalDateTime.of(2024, 1, 1, 20, 0));
+        when(watchedMovieRepository.findHistory(VALID_ID, TimeCursor.FIRST.time(), TimeCursor.FIRST.id(), Limit.of(2)))
+                .thenReturn(List.of(newest, oldest));
+
+        val result = userService.getWatchHistory(VALID_ID, null, 1);
+
+        assertThat(result.getItems()).containsExactly(newest);
+        assertThat(Keyset.decodeTimed(result.getNextCursor())).isEqualTo(new TimeCursor(newest.getWatchedAt(), newest.getId()));
+        verify(userRepository, never()).existsById(any());
+    }
+
+    @Test
+    void getWatchHistory_WithInvalidId_ShouldThrowNotFoundException() {
+        when(watchedMovieRepository.findHistory(eq(INVALID_ID), any(), anyInt(), any())).thenReturn(List.of());
+        when(userRepository.existsById(INVALID_ID)).thenReturn(false);
 
-        verify(userRepository, never()).deleteById(INVALID_ID);
+        assertThatThrownBy(() -> userService.getWatchHistory(INVALID_ID, null, null))
+                .isInstanceOf(NotFoundException.class);
     }
 }
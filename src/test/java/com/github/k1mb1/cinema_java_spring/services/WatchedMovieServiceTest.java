@@ -0,0 +1,41 @@
+package com.github.k1mb1.cinema_java_spring.services;
+
+import com.github.k1mb1.cinema_java_spring.dtos.watchedmovie.WatchedMovieBatchItemDto;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WatchedMovieServiceTest {
+
+    static final LocalDateTime WATCHED_AT = LocalDateTime.of(2024, 3, 1, 20, 0);
+
+    @Test
+    void later_ShouldPickLatestWatchedAt() {
+        val earlier = item(WATCHED_AT);
+        val latest = item(WATCHED_AT.plusHours(1));
+
+        assertThat(WatchedMovieService.later(earlier, latest)).isSameAs(latest);
+        assertThat(WatchedMovieService.later(latest, earlier)).isSameAs(latest);
+    }
+
+    @Test
+    void later_WithoutWatchedAtFirst_ShouldPickItAsNow() {
+        val now = item(null);
+
+        assertThat(WatchedMovieService.later(now, item(WATCHED_AT))).isSameAs(now);
+    }
+
+    @Test
+    void later_WithoutWatchedAtLast_ShouldPickItAsNow() {
+        val now = item(null);
+
+        assertThat(WatchedMovieService.later(item(WATCHED_AT), now)).isSameAs(now);
+    }
+
+    static WatchedMovieBatchItemDto item(LocalDateTime watchedAt) {
+        return WatchedMovieBatchItemDto.builder().userId(1).movieId(1).watchedAt(watchedAt).build();
+    }
+}
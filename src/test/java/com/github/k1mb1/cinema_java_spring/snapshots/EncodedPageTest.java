@@ -0,0 +1,27 @@
+package com.github.k1mb1.cinema_java_spring.snapshots;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EncodedPageTest {
+
+    @Test
+    void acceptsGzip_ShouldAcceptListedOrWildcardCoding() {
+        assertThat(EncodedPage.acceptsGzip("gzip, deflate")).isTrue();
+        assertThat(EncodedPage.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(EncodedPage.acceptsGzip("br, *")).isTrue();
+    }
+
+    @Test
+    void acceptsGzip_ShouldHonourZeroQuality() {
+        assertThat(EncodedPage.acceptsGzip(null)).isFalse();
+        assertThat(EncodedPage.acceptsGzip("deflate, br")).isFalse();
+        assertThat(EncodedPage.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(EncodedPage.acceptsGzip("gzip; q=0.000, *")).isFalse();
+        assertThat(EncodedPage.acceptsGzip("*;q=0")).isFalse();
+        // An explicit entry wins over the wildcard
+        assertThat(EncodedPage.acceptsGzip("*;q=0, gzip")).isTrue();
+        assertThat(EncodedPage.acceptsGzip("gzip;q=oops")).isFalse();
+    }
+}
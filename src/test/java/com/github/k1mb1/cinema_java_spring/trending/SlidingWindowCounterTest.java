@@ -0,0 +1,74 @@
+package com.github.k1mb1.cinema_java_spring.trending;
+
+import com.github.k1mb1.cinema_java_spring.dtos.movie.TrendingMovieDto;
+import lombok.val;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowCounterTest {
+
+    static final long MINUTE = Duration.ofMinutes(1).toMillis();
+    static final long START = 1_700_000_000_000L / MINUTE * MINUTE;
+
+    SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(1), 60, START);
+
+    @Test
+    void top_ShouldReturnMostWatchedFirst() {
+        counter.add(1, START, 1, START);
+        counter.add(2, START, 3, START);
+        counter.add(3, START, 2, START);
+
+        assertThat(counter.top(2, START)).containsExactly(
+                new TrendingMovieDto(2, 3L),
+                new TrendingMovieDto(3, 2L)
+        );
+    }
+
+    @Test
+    void top_WithTies_ShouldPreferLowerMovieId() {
+        counter.add(7, START, 2, START);
+        counter.add(5, START, 2, START);
+        counter.add(9, START, 2, START);
+
+        assertThat(counter.top(2, START)).extracting(TrendingMovieDto::getMovieId).containsExactly(5, 7);
+    }
+
+    @Test
+    void top_ShouldForgetWatchesThatLeftTheWindow() {
+        counter.add(1, START, 5, START);
+        val later = START + 30 * MINUTE;
+        counter.add(2, later, 1, later);
+
+        assertThat(counter.top(10, START + 59 * MINUTE)).hasSize(2);
+        assertThat(counter.top(10, START + 60 * MINUTE)).containsExactly(new TrendingMovieDto(2, 1L));
+        assertThat(counter.entries()).isEqualTo(2);
+    }
+
+    @Test
+    void add_OutsideWindow_ShouldBeIgnored() {
+        val now = START + 2 * 60 * MINUTE;
+
+        counter.add(1, START, 1, now);
+
+        assertThat(counter.top(10, now)).isEmpty();
+    }
+
+    @Test
+    void add_InTheFuture_ShouldCountAsNow() {
+        counter.add(1, START + 10 * MINUTE, 1, START);
+
+        assertThat(counter.top(10, START + 59 * MINUTE)).containsExactly(new TrendingMovieDto(1, 1L));
+        assertThat(counter.top(10, START + 60 * MINUTE)).isEmpty();
+    }
+
+    @Test
+    void advance_AfterLongIdleGap_ShouldClearEverything() {
+        counter.add(1, START, 1, START);
+
+        assertThat(counter.top(10, START + 1_000 * MINUTE)).isEmpty();
+        assertThat(counter.entries()).isZero();
+    }
+}
@@ -3,6 +3,7 @@ package com.github.k1mb1.cinema_java_spring.utils;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.lang.annotation.ElementType;
@@ -15,6 +16,8 @@ import java.lang.annotation.Target;
  * <p>
  * Применяется к тестовым классам, которым требуется полная интеграция
  * с базой данных, веб-контекстом и внешними зависимостями.
+ * <p>
+ * Профиль {@code strict} прерывает запросы, превысившие бюджет SQL-запросов своего эндпоинта.
  *
  * @see TestcontainersConfiguration TestcontainersConfiguration
  * @see TestUtilsConfig TestUtilsConfig
@@ -25,6 +28,7 @@ import java.lang.annotation.Target;
 @Import({TestcontainersConfiguration.class, TestUtilsConfig.class})
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureMockMvc
+@ActiveProfiles("strict")
 @Transactional
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
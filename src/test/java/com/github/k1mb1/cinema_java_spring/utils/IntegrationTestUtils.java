@@ -1,7 +1,10 @@
 package com.github.k1mb1.cinema_java_spring.utils;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.k1mb1.cinema_java_spring.errors.Error;
+import com.github.k1mb1.cinema_java_spring.metrics.PersistenceStats;
+import com.github.k1mb1.cinema_java_spring.metrics.StatementBudgetProperties;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.val;
@@ -22,6 +25,7 @@ public class IntegrationTestUtils {
 
     final ObjectMapper objectMapper;
     final MockMvc mockMvc;
+    final StatementBudgetProperties statementBudget;
 
     /**
      * Выполняет MockMvc-запрос и преобразует тело ответа в объект указанного класса.
@@ -49,6 +53,33 @@ public class IntegrationTestUtils {
         return object;
     }
 
+    /**
+     * Выполняет MockMvc-запрос и преобразует тело ответа в объект обобщённого типа,
+     * например {@code CursorPageResponseDto<MovieResponseDto>}.
+     *
+     * @param request подготовленный запрос
+     * @param status  ожидаемый HTTP статус ответа
+     * @param type    тип, в который нужно преобразовать ответ
+     * @param <T>     тип возвращаемого объекта
+     * @return объект, полученный из JSON-ответа
+     * @throws Exception если произошла ошибка при выполнении запроса или десериализации
+     */
+    public <T> T perform(
+            @NonNull MockHttpServletRequestBuilder request,
+            @NonNull HttpStatus status,
+            @NonNull TypeReference<T> type
+    ) throws Exception {
+        val result = mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is(status.value()))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        val object = objectMapper.readValue(result.getResponse().getContentAsString(), type);
+
+        assertThat(object).isNotNull();
+
+        return object;
+    }
+
 
     /**
      * Проверяет, что ответ содержит объект Error с указанным статусом
@@ -92,4 +123,31 @@ public class IntegrationTestUtils {
         mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().is(expectedStatus.value()));
     }
-}
\ No newline at end of file
+
+    /**
+     * Выполняет MockMvc-запрос и проверяет, что он уложился в бюджет SQL-запросов своего эндпоинта
+     * и не выполнил один и тот же запрос N+1 раз
+     *
+     * @param request        подготовленный запрос
+     * @param expectedStatus ожидаемый HTTP статус
+     * @return статистика обращений к базе данных за время обработки запроса
+     * @throws Exception если произошла ошибка при выполнении запроса
+     */
+    public PersistenceStats performWithinStatementBudget(
+            @NonNull MockHttpServletRequestBuilder request,
+            @NonNull HttpStatus expectedStatus
+    ) throws Exception {
+        val result = mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is(expectedStatus.value()))
+                .andReturn();
+        val stats = (PersistenceStats) result.getRequest().getAttribute(PersistenceStats.REQUEST_ATTRIBUTE);
+
+        assertThat(stats).isNotNull();
+        assertThat(stats.isOverBudget())
+                .as("%s prepared %d statements: %s", stats.getEndpoint(), stats.getPreparedStatements(), stats.getPreparedSql().keySet())
+                .isFalse();
+        assertThat(stats.repeatedQueries(statementBudget.getNPlusOneThreshold())).isEmpty();
+
+        return stats;
+    }
+}
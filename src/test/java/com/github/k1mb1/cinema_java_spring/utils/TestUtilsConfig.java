@@ -1,6 +1,7 @@
 package com.github.k1mb1.cinema_java_spring.utils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.k1mb1.cinema_java_spring.metrics.StatementBudgetProperties;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.test.web.servlet.MockMvc;
@@ -9,7 +10,11 @@ import org.springframework.test.web.servlet.MockMvc;
 public class TestUtilsConfig {
 
     @Bean
-    public IntegrationTestUtils integrationTestUtils(ObjectMapper objectMapper, MockMvc mockMvc) {
-        return new IntegrationTestUtils(objectMapper, mockMvc);
+    public IntegrationTestUtils integrationTestUtils(
+            ObjectMapper objectMapper,
+            MockMvc mockMvc,
+            StatementBudgetProperties statementBudget
+    ) {
+        return new IntegrationTestUtils(objectMapper, mockMvc, statementBudget);
     }
 }